@@ -0,0 +1,273 @@
+/*
+ * Bitboards.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+/**
+ * Helper methods for working with bitboards. A bitboard is a long where bit number n is set if
+ * square n is part of the set. Squares are numbered y * 8 + x, using the same coordinates as the ChessBoard.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class Bitboards {
+	private static final int[][] KNIGHT_OFFSETS = {{1,2},{2,1},{2,-1},{1,-2},{-1,-2},{-2,-1},{-2,1},{-1,2}};
+	private static final int[][] KING_OFFSETS = {{0,1},{1,1},{1,0},{1,-1},{0,-1},{-1,-1},{-1,0},{-1,1}};
+	private static final int[][] ROOK_DIRECTIONS = {{0,1},{1,0},{0,-1},{-1,0}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1,1},{1,-1},{-1,-1},{-1,1}};
+
+	/* Attack tables, indexed by square. Pawn attacks are indexed by color as well. */
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	private static final long[] KING_ATTACKS = new long[64];
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+	/* Pawn moves forward, indexed by color and square. Double pushes are only set for the pawns' starting rows, which
+	 * is where Pawn.isInitialPosition() is true in every game mode: a pawn can't come back to its row, and the pawns
+	 * of core.ChessBoard's "Locked in" mode start next to the last row, where two steps would leave the board. */
+	private static final long[][] PAWN_PUSHES = new long[2][64];
+	private static final long[][] PAWN_DOUBLE_PUSHES = new long[2][64];
+
+	/* Squares between two squares on a line, and the whole line through them. Empty if they are not on a line. */
+	private static final long[][] BETWEEN = new long[64][64];
+	private static final long[][] LINE = new long[64][64];
+
+	static {
+		for (int sq = 0; sq < 64; sq++){
+			int x = getX(sq);
+			int y = getY(sq);
+			for (int[] offset : KNIGHT_OFFSETS){
+				if (onBoard(x + offset[0], y + offset[1])){ KNIGHT_ATTACKS[sq] |= bit(square(x + offset[0], y + offset[1])); }
+			}
+			for (int[] offset : KING_OFFSETS){
+				if (onBoard(x + offset[0], y + offset[1])){ KING_ATTACKS[sq] |= bit(square(x + offset[0], y + offset[1])); }
+			}
+
+			/* Black pawns move in positive y-direction, white in negative. */
+			for (int dx = -1; dx <= 1; dx += 2){
+				if (onBoard(x + dx, y + 1)){ PAWN_ATTACKS[Position.BLACK][sq] |= bit(square(x + dx, y + 1)); }
+				if (onBoard(x + dx, y - 1)){ PAWN_ATTACKS[Position.WHITE][sq] |= bit(square(x + dx, y - 1)); }
+			}
+			if (y < 7){ PAWN_PUSHES[Position.BLACK][sq] = bit(square(x, y + 1)); }
+			if (y > 0){ PAWN_PUSHES[Position.WHITE][sq] = bit(square(x, y - 1)); }
+			if (y == 1){ PAWN_DOUBLE_PUSHES[Position.BLACK][sq] = bit(square(x, 3)); }
+			if (y == 6){ PAWN_DOUBLE_PUSHES[Position.WHITE][sq] = bit(square(x, 4)); }
+
+			for (int[][] directions : new int[][][] {ROOK_DIRECTIONS, BISHOP_DIRECTIONS}){
+				for (int[] dir : directions){
+					long line = bit(sq) | slidingAttacks(sq, 0, new int[][] {dir, {-dir[0], -dir[1]}});
+					long between = 0;
+					for (int tx = x + dir[0], ty = y + dir[1]; onBoard(tx, ty); tx += dir[0], ty += dir[1]){
+						BETWEEN[sq][square(tx, ty)] = between;
+						LINE[sq][square(tx, ty)] = line;
+						between |= bit(square(tx, ty));
+					}
+				}
+			}
+		}
+	}
+
+	private Bitboards(){}
+
+	/**
+	 * Converts board coordinates to a square number.
+	 * @param x
+	 * @param y
+	 * @return The square number (0-63)
+	 */
+	public static int square(int x, int y){
+		return (y << 3) | x;
+	}
+
+	/**
+	 * @param square
+	 * @return The x coordinate of the square
+	 */
+	public static int getX(int square){
+		return square & 7;
+	}
+
+	/**
+	 * @param square
+	 * @return The y coordinate of the square
+	 */
+	public static int getY(int square){
+		return square >>> 3;
+	}
+
+	/**
+	 * @param square
+	 * @return A bitboard with only the given square set.
+	 */
+	public static long bit(int square){
+		return 1L << square;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return True if the coordinates are inside the board.
+	 */
+	public static boolean onBoard(int x, int y){
+		return (x >= 0) && (x <= 7) && (y >= 0) && (y <= 7);
+	}
+
+	/**
+	 * @param bitboard
+	 * @return The lowest square set in the bitboard. 64 if the bitboard is empty.
+	 */
+	public static int firstSquare(long bitboard){
+		return Long.numberOfTrailingZeros(bitboard);
+	}
+
+	/**
+	 * @param square
+	 * @return Bitboard of the squares a knight on the square attacks.
+	 */
+	public static long knightAttacks(int square){
+		return KNIGHT_ATTACKS[square];
+	}
+
+	/**
+	 * @param square
+	 * @return Bitboard of the squares a king on the square attacks.
+	 */
+	public static long kingAttacks(int square){
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * @param color The color of the pawn
+	 * @param square
+	 * @return Bitboard of the squares a pawn on the square attacks.
+	 */
+	public static long pawnAttacks(int color, int square){
+		return PAWN_ATTACKS[color][square];
+	}
+
+	/**
+	 * @param color The color of the pawn
+	 * @param square
+	 * @return Bitboard of the square one step in front of the pawn. Empty on the last row.
+	 */
+	public static long pawnPushes(int color, int square){
+		return PAWN_PUSHES[color][square];
+	}
+
+	/**
+	 * @param color The color of the pawn
+	 * @param square
+	 * @return Bitboard of the square two steps in front of the pawn if it is on its starting row, else empty.
+	 * The square in between must be checked separately.
+	 */
+	public static long pawnDoublePushes(int color, int square){
+		return PAWN_DOUBLE_PUSHES[color][square];
+	}
+
+	/**
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a rook on the square attacks, including the first piece in each direction.
+	 */
+	public static long rookAttacks(int square, long occupied){
+		return Magics.rookAttacks(square, occupied);
+	}
+
+	/**
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a bishop on the square attacks, including the first piece in each direction.
+	 */
+	public static long bishopAttacks(int square, long occupied){
+		return Magics.bishopAttacks(square, occupied);
+	}
+
+	/**
+	 * Same as rookAttacks(), but found by walking the rays. Used to build the magic tables.
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a rook on the square attacks, including the first piece in each direction.
+	 */
+	static long rookRays(int square, long occupied){
+		return slidingAttacks(square, occupied, ROOK_DIRECTIONS);
+	}
+
+	/**
+	 * Same as bishopAttacks(), but found by walking the rays. Used to build the magic tables.
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a bishop on the square attacks, including the first piece in each direction.
+	 */
+	static long bishopRays(int square, long occupied){
+		return slidingAttacks(square, occupied, BISHOP_DIRECTIONS);
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @return Bitboard of the squares strictly between a and b if they share a row, column or diagonal, else 0.
+	 */
+	public static long between(int a, int b){
+		return BETWEEN[a][b];
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @return Bitboard of the whole row, column or diagonal through a and b, or 0 if they are not on one.
+	 */
+	public static long line(int a, int b){
+		return LINE[a][b];
+	}
+
+	/**
+	 * Walks the given directions from the square until the edge of the board or a piece is met.
+	 * @param square
+	 * @param occupied
+	 * @param directions
+	 * @return Bitboard of the attacked squares, including the blocking pieces.
+	 */
+	private static long slidingAttacks(int square, long occupied, int[][] directions){
+		long ret = 0;
+		for (int[] dir : directions){
+			int x = getX(square) + dir[0];
+			int y = getY(square) + dir[1];
+			while (onBoard(x, y)){
+				long b = bit(square(x, y));
+				ret |= b;
+				if ((occupied & b) != 0){ break; }
+				x += dir[0];
+				y += dir[1];
+			}
+		}
+		return ret;
+	}
+}
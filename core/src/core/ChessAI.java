@@ -33,11 +33,22 @@
 
 package core;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
 
+import core.eval.EvalCache;
+import core.eval.NnueEvaluator;
+import core.eval.TaperedEvaluator;
+import core.search.Evaluator;
+import core.search.SearchEngine;
+import core.search.SearchLimits;
+import core.search.SharedTranspositionTable;
+
+import pieces.Bishop;
+import pieces.Knight;
 import pieces.Piece;
 import pieces.Queen;
+import pieces.Rook;
 import pieces.Piece.ChessColor;
 import GUI.ChessGUI;
 
@@ -45,7 +56,16 @@ public class ChessAI extends Thread{
 	private ChessBoard board;
 	private ChessColor color;
 	private ChessGUI gui;
-	private int moveCounter;
+	
+	/* All games in the program share one evaluator, with its cache and network weights, see getEvaluator() */
+	private static Evaluator evaluator;
+	
+	/* All games in the program share one transposition table */
+	private final SearchEngine engine = new SearchEngine(getEvaluator(), SearchEngine.DEFAULT_DEPTH,
+			SharedTranspositionTable.getInstance().newGame());
+	
+	/* By default the ai thinks for half a second, and never more than one and a half */
+	private SearchLimits limits = SearchLimits.timed(500, 1500);
 	
 	public ChessAI(ChessBoard board ,ChessColor color, ChessGUI gui){
 		this.board = board;
@@ -54,32 +74,55 @@ public class ChessAI extends Thread{
 	}
 	/**
 	 * This method runs in a thread and will move a piece when it is notified and it is ai's turn.
-	 * It will also convert an ai pawn that has made it across the board into a queen.
+	 * It will also promote an ai pawn that has made it across the board to the piece chosen by the search.
+	 * If no move can be played, the game is over or the board was changed during the search, and the ai waits to be
+	 * notified again.
 	 */
-	@SuppressWarnings("deprecation")
 	public void run(){
 		while(true){
 			if(board.getTurn() == color){
-				int[] move = findBestMove();
-				if(move != null){
-					board.movePiece(board.getPiece(move[0], move[1]), move[2], move[3]);
-					Piece piece = board.getPiece(move[2], move[3]);
-					if(piece instanceof pieces.Pawn && (piece.getYcoord() == 7 || piece.getYcoord() == 0)){
-						Piece[][] boardCopy = board.getBoard();
-						boardCopy[piece.getYcoord()][piece.getXcoord()] = new Queen(piece.getPiecenr(),
-								piece.getXcoord(), piece.getYcoord(), piece.getColor());
-					}
+				long[] history = board.getGameHistory();
+				engine.setGameHistory(history, history.length);
+				int move = engine.findBestMove(board.getPosition(), limits);
+				if(move != Move.NONE && play(move)){
 					gui.fireBoardUpdate(this);
-				}	
-			}else{
-				synchronized (this) {
-					try {
-						wait();
-					} catch (InterruptedException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
+				}else{
+					pause();
 				}
+			}else{
+				pause();
+			}
+		}
+	}
+
+	/**
+	 * Plays a move on the board, and promotes the pawn if the move is a promotion.
+	 * @param move A move found by the search
+	 * @return False if the board didn't accept the move. Nothing is changed then.
+	 */
+	private boolean play(int move){
+		int from = Move.from(move);
+		int to = Move.to(move);
+		if(!board.movePiece(board.getPiece(Bitboards.getX(from), Bitboards.getY(from)), Bitboards.getX(to), Bitboards.getY(to))){
+			return false;
+		}
+		if(Move.promotion(move) != 0){
+			Piece pawn = board.getPiece(Bitboards.getX(to), Bitboards.getY(to));
+			board.setPiece(promote(pawn, Move.promotion(move)), pawn.getXcoord(), pawn.getYcoord());
+		}
+		return true;
+	}
+
+	/**
+	 * Waits until the ai is notified.
+	 */
+	private void pause(){
+		synchronized (this) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
 			}
 		}
 	}
@@ -93,366 +136,84 @@ public class ChessAI extends Thread{
 	}
 	
 	/**
-	 * This method will calculate values of all the avaliable moves for a piece.
-	 * @param piece
-	 * @return the score list is parallel with .listMoves(piece)
+	 * Makes the ai look a fixed number of half moves ahead, however long it takes.
+	 * @param depth
 	 */
-	@SuppressWarnings("deprecation")
-	private int[] calculateMoves(Piece piece){
-		//creates a copy of the chessboard
-		ChessBoard boardSim = new ChessBoard(0);
-		boardSim.restoreFromMemento(board.saveToMemento());
-		Piece[][] boardCopy = boardSim.getBoard();
-		
-		int x = piece.getXcoord();
-		int y = piece.getYcoord();
-		
-		int[][] moves = boardSim.listMoves(piece);
-		if(boardSim.listMoves(piece)!=null){
-			int[] score = new int[moves.length];
-			
-			//searches through moves
-			for(int i = 0; i < moves.length; i++){
-				//resets the board.
-				boardSim.restoreFromMemento(board.saveToMemento());
-				piece = boardSim.getPiece(x, y);
-				boardCopy = boardSim.getBoard();
-
-				//gives the move an initial score
-				if(piece instanceof pieces.Pawn){ // pawns are special.
-					if(boardCopy[moves[i][1]][moves[i][0]] != null){
-						score[i] = boardCopy[moves[i][1]][moves[i][0]].getValue()*10;
-					}else if(moves[i][1] == 4 || moves[i][1] == 3 && moveCounter < 4){
-						score[i] = 9;
-					}
-					if(moves[i][1] == 0 || moves[i][1] ==  7){ // can gain a queen
-						score[i] = 90;
-					}
-				}else if(piece instanceof pieces.Rook && piece.canCastle()&& moveCounter < 10){
-					score[i] = -2;
-				}else if(boardCopy[moves[i][1]][moves[i][0]] != null){
-					score[i] = boardCopy[moves[i][1]][moves[i][0]].getValue()*10; //gives score if it can kill a piece
-				}else{
-					score[i] = 0;
-				}
-				
-				//simulates a move
-				boardSim.movePiece(piece, moves[i][0], moves[i][1]);
-				
-				//searches through enemy pieces
-				for(int j = 0; j < boardCopy.length; j++){
-					for(int k = 0; k < boardCopy[0].length; k++){
-						if(boardCopy[j][k] != null){
-							if(boardCopy[j][k].getColor() != piece.getColor()){
-								int[][] enemyMoves = boardSim.listMoves(boardCopy[j][k]);
-								if(enemyMoves != null){
-									//Looks if any of the enemyMoves conflicts with moves
-									for(int l = 0; l < enemyMoves.length; l++){
-										if(enemyMoves[l][0] == moves[i][0] && enemyMoves[l][1] == moves[i][1]){
-											if(piece instanceof pieces.Pawn && score[i] == 10){
-												// pawns will kamikaze other pawns
-											}else{               
-												score[i] -= (piece.getValue()*10)+1;
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-				// Second move.
-				
-				// don't bother searching through a bad or good move.
-				if(score[i] == 0){
-					// Creates a new ChessBoard
-					ChessBoard boardSimTwo = new ChessBoard(3);
-					Piece[][] boardCopyTwo;
-					
-					int[][] movesTwo = boardSim.listMoves(boardCopy[moves[i][1]][moves[i][0]]);
-					
-					if(movesTwo != null){
-						int[] scoreTwo = new int[movesTwo.length];
-						for(int m = 0; m < movesTwo.length; m++){
-							
-							// restore and set rules = false
-							boardSimTwo.restoreFromMemento(boardSim.saveToMemento());
-							boardCopyTwo = boardSimTwo.getBoard();
-							piece = boardSimTwo.getPiece(moves[i][0], moves[i][1]);
-							boardSimTwo.setRulesFalse();
-							
-							
-							//score
-							if(piece instanceof pieces.Pawn){
-								
-								if(boardCopyTwo[movesTwo[m][1]][movesTwo[m][0]] != null){
-									scoreTwo[m] = boardCopyTwo[movesTwo[m][1]][movesTwo[m][0]].getValue();
-								}if(movesTwo[m][1] == 0 || movesTwo[m][1] ==  7){ // can gain a queen
-									scoreTwo[m] += 9;
-								}
-								
-							}else if(boardCopyTwo[movesTwo[m][1]][movesTwo[m][0]] != null){
-								scoreTwo[m] += boardCopyTwo[movesTwo[m][1]][movesTwo[m][0]].getValue(); //gives score if it can kill a piece
-							}else{
-								scoreTwo[m] = 0;
-							}
-							
-							//moves the piece a second time.
-							boardSimTwo.movePiece(piece, movesTwo[m][0],movesTwo[m][1]);
-							
-							//searches through the entire board and checks enemy pieces and moves.
-							for(int j = 0; j < boardCopyTwo.length; j++){
-								for(int k = 0; k < boardCopyTwo[0].length; k++){
-									if(boardCopyTwo[j][k] != null){
-										if(boardCopyTwo[j][k].getColor() != piece.getColor()){
-											int[][] enemyMoves = boardSimTwo.listMoves(boardCopy[j][k]);
-											if(enemyMoves != null){
-												
-												//Looks if any of the enemyMoves conflicts with moves
-												for(int l = 0; l < enemyMoves.length; l++){
-													if(enemyMoves[l][0] == movesTwo[m][0] && enemyMoves[l][1] == movesTwo[m][1]){																											
-														if(piece instanceof pieces.Pawn && scoreTwo[m] == 1){
-															// pawns will kamikaze other pawns
-														}else{
-															scoreTwo[m] -= piece.getValue()+1;
-														}
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-						// finds best move from secondMoves and adds it to score[i]
-						int big = -999;
-						int indexNr = 0;
-						for(int n = 0; n < scoreTwo.length; n++){
-							if(big < scoreTwo[n]){
-								big = scoreTwo[n];
-								indexNr = n;
-							}
-						}
-						score[i] += scoreTwo[indexNr];
-					}
-				}	
-			}
-			return score;
-		}else{
-			return null;
-		}
+	public void setDepth(int depth){
+		limits = SearchLimits.fixedDepth(depth);
 	}
+	
 	/**
-	 * This method goes through all the ai pieces and finds the best move for each piece and saves them in an ArrayList.
-	 * It then searches through the ArrayList and finds the piece with the best score.
-	 * It returns an int[] with the coords to the piece it wants to move, and the coords to the place it wants to move.
-	 * @return moveFromTo[0] = from X
-			   moveFromTo[1] = from Y
-			   moveFromTo[2] = to X
-			   moveFromTo[3] = to Y
+	 * Makes the ai think for a given time. It finishes the depth it is working on after the soft limit,
+	 * but always moves before the hard limit.
+	 * @param softMillis
+	 * @param hardMillis
 	 */
-	@SuppressWarnings("deprecation")
-	private int[] findBestMove(){
-		int[] moveFromTo = new int[4];
-		ArrayList<Piece> piece = new ArrayList<Piece>();
-		ArrayList<String> bestMove = new ArrayList<String>();
-		ArrayList<Integer> bestScore = new ArrayList<Integer>();
-		
-		Piece[][] boardCopy = board.getBoard();
-		
-		//searches through the friendly pieces
-		for(int i = 0; i < boardCopy.length; i++){
-			for(int j = 0; j < boardCopy.length; j++){
-				if(boardCopy[i][j] != null){
-					if(boardCopy[i][j].getColor() == color){
-						
-						//checks if the enemy can kill the piece on its current pos, and tries to save it if possible.
-						int[] move = evaluatePos(boardCopy[i][j]);
-						if(move != null){
-							moveFromTo[0] = boardCopy[i][j].getXcoord();
-							moveFromTo[1] = boardCopy[i][j].getYcoord();
-							moveFromTo[2] = move[0];
-							moveFromTo[3] = move[1];
-							moveCounter++;
-							return  moveFromTo;
-						}
-						// gives the piece a score on all its moves and saves the best move.
-						int[] score = calculateMoves(boardCopy[i][j]);
-						int[][] moves = board.listMoves(boardCopy[i][j]);
-						
-						if(score != null){
-							int big = -999;
-							int indexNr = 0;
-							ArrayList<Integer> index = new ArrayList<Integer>();
-							for(int k = 0; k < score.length; k++){
-								if(score[k] > big){
-									big = score[k];
-									indexNr = k;
-									index = new ArrayList<Integer>();
-									index.add(k);
-								}else if(score[k] == big){
-									index.add(k);
-								}
-							}
-							if(index.size() > 0){
-								indexNr = index.get(randomGen(index.size()));
-							}
-							
-							if(moves.length == 0){
-								
-							}else{
-								piece.add(boardCopy[i][j]);
-								bestScore.add(score[indexNr]);
-								bestMove.add(""+moves[indexNr][0]+moves[indexNr][1]);
-							}
-						}
-					}
-				}
-			}
-		}
-		
-		// searches through all the moves saved earlier and selects the best move.
-		int big = -999;
-		int best = 0;
-		ArrayList<Integer> good = new ArrayList<Integer>();
-		for(int k = 0; k < bestScore.size(); k++){
-			if(bestScore.get(k) > big){
-				big = bestScore.get(k);
-				best = k;
-				good = new ArrayList<Integer>();
-				good.add(k);
-			}else if(bestScore.get(k) == big){
-				good.add(k);
-			}
-		}
-		if(good.size() > 0){
-			good.add(best);
-			best = good.get(randomGen(good.size()));
-		}
-		if(bestScore.size() == 0){return null;}
-		moveFromTo[0] = piece.get(best).getXcoord();
-		moveFromTo[1] = piece.get(best).getYcoord();
-		moveFromTo[2] = bestMove.get(best).charAt(0)-48;
-		moveFromTo[3] = bestMove.get(best).charAt(1)-48;
-		moveCounter++;
-		return moveFromTo;
+	public void setTimeLimit(long softMillis, long hardMillis){
+		limits = SearchLimits.timed(softMillis, hardMillis);
 	}
+	
 	/**
-	 * A method that returns a random number from 0-a
-	 * @param a
-	 * @return
+	 * Should be called when the game is over. Gives up the ai's part of the shared transposition table, so that its
+	 * entries are replaced first and its tag can be used by a new game. Games that are not ended lose their tag
+	 * when it is needed for a new one.
 	 */
-	private int randomGen(int a){
-		Random ran = new Random();
-		int random = ran.nextInt(a);
-		return random;
+	public void endGame(){
+		engine.getTranspositionTable().close();
 	}
 	
 	/**
-	 * This method will check if an ai piece is in a position where it can be killed.
-	 * @param piece
-	 * @return
+	 * Sets the number of threads the ai thinks with. By default it uses one, since many games can be played at once.
+	 * @param threads
 	 */
-	@SuppressWarnings("deprecation")
-	private int[] evaluatePos(Piece piece){
-		boolean defended = isDefended(piece);
-		// pawns usually can't be saved.
-		if(piece instanceof pieces.Pawn){
-			return null;
-		// if the piece is defended don't bother searching more.
-		}if(defended){
-			return null;
+	public void setThreads(int threads){
+		engine.setThreads(threads);
+	}
+	
+	/**
+	 * @return The evaluator shared by all the ais, created by the first one. The evaluators keep what belongs to one
+	 * game or one thread in the positions and in thread-local tables, so they can be shared.
+	 */
+	private static synchronized Evaluator getEvaluator(){
+		if (evaluator == null){
+			evaluator = new EvalCache(createEvaluator());
 		}
-		int x = piece.getXcoord();
-		int y = piece.getYcoord();
-		Piece[][] boardCopy = board.getBoard();
-		//scans the entire enemy army and checks if they can kill any friendly pieces
-		for(int i = 0; i < boardCopy.length; i++){
-			for(int j = 0; j < boardCopy[0].length; j++){
-				if(boardCopy[i][j] != null){
-					if(boardCopy[i][j].getColor() != color){
-						int[][] enemyMoves = board.listMoves(boardCopy[i][j]);
-						if(enemyMoves != null){
-							for(int n = 0; n < enemyMoves.length; n++){
-								if((enemyMoves[n][0] == x && enemyMoves[n][1] == y && !(boardCopy[i][j] instanceof pieces.Pawn))
-										|| (boardCopy[i][j] instanceof pieces.Pawn && boardCopy[i][j].getXcoord() != enemyMoves[n][0] 
-										       && (enemyMoves[n][0] == x && enemyMoves[n][1] == y))){
-									//the enemy can kill this piece in the next round, so try to move.
-									int[] score = calculateMoves(piece);
-									if(score != null){
-										int big = -999;
-										int best = 0;
-										ArrayList<Integer> index = new ArrayList<Integer>();
-										for(int k = 0; k < score.length; k++){
-											if(score[k] > big){
-												big = score[k];
-												best = k;
-												index = new ArrayList<Integer>();
-												index.add(k);
-											}else if(score[k] == big){
-												index.add(k);
-											}
-										}
-										if(index.size() > 0){
-											best = index.get(randomGen(index.size()));
-										}
-										int[][] moves = board.listMoves(piece);
-										int[] move = new int[2];
-										move[0] = moves[best][0];
-										move[1] = moves[best][1];
-										return move;
-									}
-								}
-							}
-						}
-					}
-				}
+		return evaluator;
+	}
+	
+	/**
+	 * The ai evaluates positions with the neural network in the file given by the system property chessboat.network,
+	 * if it is set and can be loaded, and else with the tapered evaluation.
+	 * @return The evaluator
+	 */
+	private static Evaluator createEvaluator(){
+		String file = System.getProperty("chessboat.network");
+		if (file != null){
+			try {
+				return new NnueEvaluator(new File(file));
+			} catch (IOException e) {
+				e.printStackTrace();
 			}
 		}
-	return null;
+		return new TaperedEvaluator();
 	}
+	
 	/**
-	 * This method will check if a piece is defended by placing an enemy piece where the piece is
-	 *  and see if any of the friendly pieces can kill it.
-	 * @param piece
-	 * @return
+	 * Creates the piece a pawn is promoted to.
+	 * @param pawn
+	 * @param type Position.KNIGHT, BISHOP, ROOK or QUEEN
+	 * @return The new piece, on the pawn's square.
 	 */
-	@SuppressWarnings("deprecation")
-	private boolean isDefended(Piece piece){
-		// creates a new chessboard
-		ChessBoard boardSim = new ChessBoard(0);
-		boardSim.restoreFromMemento(board.saveToMemento());
-		Piece[][] boardCopy = boardSim.getBoard();
-		
-		ChessColor enemy;
-		if(color == ChessColor.BLACK){
-			enemy = ChessColor.WHITE;
-		}else{
-			enemy = ChessColor.BLACK;
-		}
-		// puts an enemy piece where the ai piece is.
-		boardCopy[piece.getYcoord()][piece.getXcoord()] = new Queen(piece.getPiecenr(), piece.getXcoord(), piece.getYcoord(), enemy);
-		piece = boardCopy[piece.getYcoord()][piece.getXcoord()];
-		
-		//checks if any friendly piece can kill the enemy piece and returns true if it can.
-		for(int i = 0; i < boardCopy.length; i++){
-			for(int j = 0; j < boardCopy[0].length; j++){
-				if(boardCopy[i][j] != null){
-					if(boardCopy[i][j].getColor() == color){
-						int[][] moves = boardSim.listMoves(boardCopy[i][j]);
-						if(moves != null){
-							for(int k = 0; k < moves.length; k++){
-								if((moves[k][0] == piece.getXcoord() && moves[k][1] == piece.getYcoord() && !(boardCopy[i][j] instanceof pieces.Pawn))
-										|| (boardCopy[i][j] instanceof pieces.Pawn && boardCopy[i][j].getXcoord() != moves[k][0] 
-										        && (moves[k][0] == piece.getXcoord() && moves[k][1] == piece.getYcoord()))){
-									return true;									
-								}
-							}
-						}
-					}
-				}
-			}
+	private static Piece promote(Piece pawn, int type){
+		switch (type){
+		case Position.KNIGHT:
+			return new Knight(pawn.getPiecenr(), pawn.getXcoord(), pawn.getYcoord(), pawn.getColor());
+		case Position.BISHOP:
+			return new Bishop(pawn.getPiecenr(), pawn.getXcoord(), pawn.getYcoord(), pawn.getColor());
+		case Position.ROOK:
+			return new Rook(pawn.getPiecenr(), pawn.getXcoord(), pawn.getYcoord(), pawn.getColor());
+		default:
+			return new Queen(pawn.getPiecenr(), pawn.getXcoord(), pawn.getYcoord(), pawn.getColor());
 		}
-		return false;
 	}
 }
@@ -35,6 +35,7 @@ package core;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import pieces.Bishop;
 import pieces.King;
@@ -54,68 +55,53 @@ public class ChessBoard implements Serializable{
 
 	private int startNr = 31;
 	private final ChessColor BLACK = ChessColor.BLACK;
-	private final ChessColor WHITE = ChessColor.WHITE;
 	private ChessColor lastTurnWas = BLACK;
-	private ChessColor listingMovesForKing = null;	
+	private static final String[] TYPE_NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
 	
 	//           y x
 	private Piece[][] board = new Piece[8][8];
-	private Piece[][] shadowBoard = new Piece[8][8];
+	
+	/* Bitboard version of the board. Used for move generation and check detection. Kept in sync with board[][] */
+	private Position position = new Position();
+	private transient MoveList moveBuffer; //reused by listMoves()
+	
+	/* Zobrist keys of the positions before each move, oldest first, for finding repetitions */
+	private long[] history = new long[64];
+	private int historySize;
 	
 	private ArrayList<Piece> whiteGone = new ArrayList<Piece>();
 	private ArrayList<Piece> blackGone = new ArrayList<Piece>();
 	
 	private boolean rules = false;
-	private boolean passant = false; //Variable to handle the n passant move.
 	
 	public class Memento{
 		final ChessColor lastTurnWas;
-		final ChessColor listingMovesForKing;
 		
 		final Piece[][] board;
-		final Piece[][] shadowBoard;
+		final Position position;
 		
 		final ArrayList<Piece> whiteGone;
 		final ArrayList<Piece> blackGone;
 		
 		final boolean rules;
-		final boolean passant;
+		
+		final long[] history;
 		
 		
 		/**
 		 * @param lastTurnWas
-		 * @param listingMovesForKing
 		 * @param board
-		 * @param shadowBoard
+		 * @param position
 		 * @param whiteGone
 		 * @param blackGone
 		 * @param rules
-		 * @param passant
+		 * @param history Keys of the positions played, see getGameHistory()
 		 */
-		public Memento(ChessColor lastTurnWas, ChessColor listingMovesForKing,
-				Piece[][] board, Piece[][] shadowBoard,
-				ArrayList<Piece> whiteGone, ArrayList<Piece> blackGone,
-				boolean rules, boolean passant) {
+		public Memento(ChessColor lastTurnWas, Piece[][] board, Position position,
+				ArrayList<Piece> whiteGone, ArrayList<Piece> blackGone, boolean rules, long[] history) {
 			this.lastTurnWas = lastTurnWas;
-			this.listingMovesForKing = listingMovesForKing;
-			this.board = new Piece[8][8];
-			for (Piece pieces[] : board) {
-				for (Piece piece : pieces) {
-					if (piece != null){
-						this.board[piece.getYcoord()][piece.getXcoord()] 
-						     = copyPiece(piece);
-					}
-				}
-			}
-			this.shadowBoard = new Piece[8][8];
-			for (Piece pieces[] : shadowBoard) {
-				for (Piece piece : pieces) {
-					if (piece != null){
-						this.shadowBoard[piece.getYcoord()][piece.getXcoord()] 
-						                                    = copyPiece(piece);
-					}
-				}
-			}
+			this.board = copyBoard(board);
+			this.position = new Position(position);
 			this.whiteGone = new ArrayList<Piece>();
 			for (Piece piece : whiteGone) {
 				this.whiteGone.add(copyPiece(piece));
@@ -125,7 +111,7 @@ public class ChessBoard implements Serializable{
 				this.blackGone.add(copyPiece(piece));
 			}				
 			this.rules = rules;
-			this.passant = passant;
+			this.history = history.clone();
 		}
 	}
 	
@@ -135,7 +121,7 @@ public class ChessBoard implements Serializable{
 	 * Creates a non-standard game of chess.
 	 * @param gameMode 
 	 * 0: Default mode
-	 * 1: "Locked in": pawns switch side <br /> 
+	 * 1: "Locked in": pawns switch side. They start one step from promotion, without a double step. <br /> 
 	 * 2: No pawns <br />
 	 * 3: "Haxx0r-mode": turns off some rules.
 	 */
@@ -213,6 +199,7 @@ public class ChessBoard implements Serializable{
 			break;
 		}
 		startNr = 31;
+		syncPosition();
 	}
 	
 	
@@ -221,8 +208,7 @@ public class ChessBoard implements Serializable{
 	 * @return Memento object for caretaker.
 	 */
 	public Memento saveToMemento(){
-		return new Memento(lastTurnWas, listingMovesForKing, board, 
-							shadowBoard, whiteGone, blackGone, rules, passant);
+		return new Memento(lastTurnWas, board, position, whiteGone, blackGone, rules, getGameHistory());
 	}
 	
 	/**
@@ -230,14 +216,15 @@ public class ChessBoard implements Serializable{
 	 * @param mementoObject The state to restore
 	 */
 	public void restoreFromMemento(Object mementoObject){
-		lastTurnWas = ((Memento)mementoObject).lastTurnWas;
-		listingMovesForKing = ((Memento)mementoObject).listingMovesForKing;
-		board = ((Memento)mementoObject).board;
-		shadowBoard = ((Memento)mementoObject).shadowBoard;
-		whiteGone = ((Memento)mementoObject).whiteGone;
-		blackGone = ((Memento)mementoObject).blackGone;
-		rules = ((Memento)mementoObject).rules;
-		passant = ((Memento)mementoObject).passant;
+		Memento memento = (Memento)mementoObject;
+		lastTurnWas = memento.lastTurnWas;
+		board = copyBoard(memento.board); //Copies, so that the memento can be restored more than once.
+		position.copyFrom(memento.position);
+		whiteGone = new ArrayList<Piece>(memento.whiteGone);
+		blackGone = new ArrayList<Piece>(memento.blackGone);
+		rules = memento.rules;
+		history = Arrays.copyOf(memento.history, Math.max(64, memento.history.length * 2));
+		historySize = memento.history.length;
 	}
 	
 	
@@ -248,36 +235,22 @@ public class ChessBoard implements Serializable{
 	 * @return Piece found 
 	 */
 	public Piece findPiece(ChessColor color, String name){
-		for (Piece pieces[] : board) {
-			for (Piece piece : pieces) { //Searches through the entire board.
-				if (piece != null && piece.getClass().getSimpleName().equalsIgnoreCase(name.trim())
-						&& (piece.getColor() == color)){
-					return piece;
-				}
+		for (int type = Position.PAWN; type <= Position.KING; type++){
+			if (TYPE_NAMES[type].equalsIgnoreCase(name.trim())){
+				long found = position.getPieces(color.ordinal(), type);
+				if (found == 0){ return null; }
+				int square = Bitboards.firstSquare(found); //Lowest square first, same as searching the board row by row.
+				return board[Bitboards.getY(square)][Bitboards.getX(square)];
 			}
 		}
 		return null;
 	}
 	
 	
-	/**
-	 * Method that shortens the length of a list of moves and returns it
-	 * @param movesTable
-	 * @param movesFound
-	 * @return A shortened list of moves.
-	 */
-	private int[][] shortenList(int[][] movesTable, int movesFound){
-		int[][] temp = new int[movesFound][2];
-		for(int i = 0; i < temp.length; i++){
-			temp[i][0] = movesTable[i][0];
-			temp[i][1] = movesTable[i][1];
-		}
-		return temp;
-	}
-	
-	
 	/**
 	 * As requested by Kristian. Don't use it in vain!
+	 * Changes to the board must be done through {@link core.ChessBoard#setPiece(Piece, int, int) setPiece},
+	 * or the bitboards will be out of sync.
 	 * @return a reference to the board.
 	 */
 	@Deprecated
@@ -286,6 +259,35 @@ public class ChessBoard implements Serializable{
 	}
 	
 	
+	/**
+	 * The bitboard version of the board. The AI searches on a copy of it, using makeMove() and unmakeMove().
+	 * Don't change it directly, the pieces on the board will not follow.
+	 * @return a reference to the position.
+	 */
+	public Position getPosition() {
+		return position;
+	}
+	
+	
+	/**
+	 * The Zobrist key of the position. Kept up to date by movePiece(), setPiece() and restoreFromMemento().
+	 * Two boards with the same pieces, turn, castling rights and en passant possibilities have the same hash.
+	 * @return 64-bit key identifying the position.
+	 */
+	public long getHash() {
+		return position.getKey();
+	}
+	
+	/**
+	 * The Zobrist keys of the positions the game has been through, so that a search can see repetitions of them.
+	 * Kept by movePiece() and restoreFromMemento().
+	 * @return The keys of the positions before each move, oldest first. The current position is not included.
+	 */
+	public long[] getGameHistory() {
+		return Arrays.copyOf(history, historySize);
+	}
+	
+	
 	/**
 	 * Get the piece at the given coordinate
 	 * @param x
@@ -306,6 +308,12 @@ public class ChessBoard implements Serializable{
 	 */
 	public void setPiece(Piece newPiece, int x, int y){
 		board[y][x] = newPiece;
+		int square = Bitboards.square(x, y);
+		position.remove(square);
+		if (newPiece != null){
+			position.put(Position.piece(newPiece.getColor().ordinal(), typeOf(newPiece)), square);
+		}
+		syncCastlingRights();
 	}
 	
 	
@@ -351,6 +359,91 @@ public class ChessBoard implements Serializable{
 	}
 	
 	
+	/**
+	 * Makes a deep copy of a board.
+	 * @param original
+	 * @return A new board with copies of the pieces.
+	 */
+	private Piece[][] copyBoard(Piece[][] original){
+		Piece[][] ret = new Piece[8][8];
+		for (Piece pieces[] : original) {
+			for (Piece piece : pieces) {
+				if (piece != null){
+					ret[piece.getYcoord()][piece.getXcoord()] = copyPiece(piece);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	
+	/**
+	 * Finds the Position type of a piece.
+	 * @param piece
+	 * @return Position.PAWN, Position.KNIGHT, etc.
+	 */
+	private static int typeOf(Piece piece){
+		if (piece instanceof pieces.Pawn){
+			return Position.PAWN;
+		}else if (piece instanceof pieces.Knight){
+			return Position.KNIGHT;
+		}else if (piece instanceof pieces.Bishop){
+			return Position.BISHOP;
+		}else if (piece instanceof pieces.Rook){
+			return Position.ROOK;
+		}else if (piece instanceof pieces.Queen){
+			return Position.QUEEN;
+		}
+		return Position.KING;
+	}
+	
+	
+	/**
+	 * Rebuilds the bitboards from the pieces on the board.
+	 */
+	private void syncPosition(){
+		position = new Position();
+		for (Piece pieces[] : board) {
+			for (Piece piece : pieces) {
+				if (piece != null){
+					position.put(Position.piece(piece.getColor().ordinal(), typeOf(piece)),
+							Bitboards.square(piece.getXcoord(), piece.getYcoord()));
+				}
+			}
+		}
+		position.setSideToMove(getTurn().ordinal());
+		syncCastlingRights();
+	}
+	
+	
+	/**
+	 * The pieces know whether they have moved or not. Castling rights are set from the kings and rooks that are
+	 * still in their initial position.
+	 */
+	private void syncCastlingRights(){
+		int rights = 0;
+		if (canCastleWith(7, 0, ChessColor.BLACK)){ rights |= Position.BLACK_SHORT; }
+		if (canCastleWith(0, 0, ChessColor.BLACK)){ rights |= Position.BLACK_LONG; }
+		if (canCastleWith(7, 7, ChessColor.WHITE)){ rights |= Position.WHITE_SHORT; }
+		if (canCastleWith(0, 7, ChessColor.WHITE)){ rights |= Position.WHITE_LONG; }
+		position.setCastlingRights(rights);
+	}
+	
+	
+	/**
+	 * @param rookX
+	 * @param y
+	 * @param color
+	 * @return True if both the king and the rook of the given color are unmoved on their initial squares.
+	 */
+	private boolean canCastleWith(int rookX, int y, ChessColor color){
+		Piece king = board[y][4];
+		Piece rook = board[y][rookX];
+		return (king instanceof pieces.King) && (rook instanceof pieces.Rook) && king.getColor() == color
+				&& rook.getColor() == color && king.canCastle() && rook.canCastle();
+	}
+	
+	
 	/**
 	 * Moves the given piece.
 	 * @param toMove The piece to be moved. Use the getPiece(x, y) method to get the piece. 
@@ -359,492 +452,163 @@ public class ChessBoard implements Serializable{
 	 * @return true if the piece is moved. False if it's an illegal move, or the piece doesn't exist.
 	 */
 	public synchronized boolean movePiece(Piece toMove, int toX, int toY){
-		boolean moveOK = false; //For moving king out of checked position.
-		boolean passantSetNow = false;
-		Piece shadow = null; //Shadow-pawn
+		if (toMove == null){ return false; }
+		int fromX = toMove.getXcoord();
+		int fromY = toMove.getYcoord();
+		int from = Bitboards.square(fromX, fromY);
+		int to = Bitboards.square(toX, toY);
 		
 		if(rules){
-			if ((toMove == null) || (toMove.getColor().equals(lastTurnWas))
-				 || !(checkIfMoveIsLegal(toMove, toX, toY))){ return false; } //Returns false if calling a move that is not possible.
+			if ((toMove.getColor().equals(lastTurnWas))
+				 || (position.legalTargets(from) & Bitboards.bit(to)) == 0){ return false; } //Returns false if calling a move that is not possible.
+		}else if (position.leavesKingInCheck(from, to)){ 
+			return false; //Even without rules the king can not be left in check.
 		}
 		
-		/* Adds pieces that are to be striked to a table for graphical representation */
-		int oldWhiteSize = whiteGone.size();
-		int oldBlackSize = blackGone.size();
+		if (historySize == history.length){
+			history = Arrays.copyOf(history, historySize * 2);
+		}
+		history[historySize++] = position.getKey();
 		
-		/*
-		 *  Checks if it's an "n passant" move
+		/* 
+		 *  Checks if it's an "en passant" move
 		 * If so a pawn can strike a pawn that has moved two steps like if it had
 		 * just moved one step.
 		 */
-		if (passant && toMove instanceof pieces.Pawn){
-			if ((shadowBoard[toY][toX] != null) && (shadowBoard[toY][toX].getColor() != toMove.getColor())){
-				shadow = shadowBoard[toY][toX];			//Allocates the shadow-pawn.
-//				shadowBoard[toY][toX] = null; 			//Blanks the passantboard.		Seems to be unessesary.
-				
-				/* 
-				 * Adds 1 for black pieces, subtracts one for white
-				 * This makes sure the pieces are removed from the board. 
-				 */
-				if(shadow.getColor() == BLACK){
-					toY += 1;
-				}else{
-					toY -= 1; 
-				}
-			}
+		int strikeY = toY;
+		if ((toMove instanceof pieces.Pawn) && (to == position.getEnPassantSquare()) && (getPiece(toX, toY) == null)){
+			strikeY = fromY;
 		}
 		
 		/* 
 		 * The normal procedure of moving pieces off the board and 
 		 * into an arraylist containing them
 		 */ 
-		if(getPiece(toX, toY) != null){
+		Piece striken = getPiece(toX, strikeY);
+		if(striken != null){
 			if(toMove.getColor().equals(BLACK)){
-				whiteGone.add(getPiece(toX, toY));
+				whiteGone.add(striken);
 			}else {
-				blackGone.add(getPiece(toX, toY));
+				blackGone.add(striken);
 			}
-		}
-		
-		/* If a shadow-pawn has been striken, returns the move coordinates back to normal */
-		if (passant && (shadow != null)){
-			if(shadow.getColor() == BLACK){
-				toY -= 1;
-			}else{
-				toY += 1;
-			} 
-		}
-		
-		/* If passant (clears the shadowBoard) */
-		if (passant){
-			shadowBoard = new Piece[8][8];
+			board[strikeY][toX] = null;
 		}
 		
 		/* 
 		 * If king (and castling move) 
 		 * Moves only the rook. The move of the king is done afterwards (as usual (the kings coordinates was parameters.)
 		 */
-		if ((toMove instanceof pieces.King) && (Math.abs(toMove.getXcoord() - toX) == 2)){ //If the king is moving two x-units.
-			if (toMove.getXcoord() - toX > 0){ //For positive X
-				board[toY][toX + 1] = getPiece(0, toY);
-				board[toY][0] = null;
+		if ((toMove instanceof pieces.King) && (Math.abs(fromX - toX) == 2)){ //If the king is moving two x-units.
+			int rookX = fromX - toX > 0 ? 0 : 7;
+			int newRookX = fromX - toX > 0 ? toX + 1 : toX - 1;
+			Piece rook = getPiece(rookX, toY);
+			if (rook instanceof pieces.Rook){
+				board[toY][newRookX] = rook;
+				board[toY][rookX] = null;
 				
 				/* Sets only X coord, y is the same */
-				getPiece(toX + 1, toY).setXcoord(toX + 1);
-			}else{ // for negative X
-				board[toY][toX - 1] = getPiece(7, toY);
-				board[toY][7] = null;
-				getPiece(toX - 1, toY).setXcoord(toX - 1);
-			}
-		}
-		
-		/* If passant move. Makes a duplicate pawn on a shadow board and sets appropriate flags */
-		else if((toMove instanceof pieces.Pawn) && (Math.abs(toMove.getYcoord() - toY) > 1)){
-			
-			/* Copies the new pawn to the correct place on the shadowBoard.  Decrements Y for black, increments for white */
-			if (toMove.getColor() == BLACK){
-				shadowBoard[toY-1][toX] = new Pawn(toMove.getPiecenr(), toX, (toY-1), toMove.getColor());
-			}else {
-				shadowBoard[toY+1][toX] = new Pawn(toMove.getPiecenr(), toX, (toY+1), toMove.getColor());
+				rook.setXcoord(newRookX);
 			}
-			passant = true;
-			passantSetNow = true;
 		}
 		
 		/* Performs the actual move of the piece */
+		board[fromY][fromX] = null; //Blanks the old location.
 		board[toY][toX] = toMove;
-		board[toMove.getYcoord()][toMove.getXcoord()] = null; //Blanks the old location.
-		
-		/* 
-		 * If something somehow goes wrong. Corrects the "mistake" and returns false.
-		 * For instance, when the attempted move does not result in the king being out of check
-		 * ***********Legacy code*************
-		 */
-		if (!getPiece(toX, toY).equals(toMove) //If the piece hasn't moved somehow
-			|| (((toMove instanceof pieces.King) && (isCheck(toX, toY, toMove.getColor()))) //If the piece is in check after the move and it's a king 
-				|| (isCheck(findPiece(toMove.getColor(), "king"))))){ //Or the king is in check after the move
-			
-			/* If king. Does a better control of wether or not the king is in check */
-			if (toMove instanceof pieces.King){
-				int oldX = toMove.getXcoord();
-				int oldY = toMove.getYcoord();
-				toMove.setXcoord(toX); //Tells the piece it has moved
-				toMove.setYcoord(toY); //
-				if (isCheck(toMove)){ //If in check
-					setPiece(toMove, oldX, oldY); //Moves the piece back to it's old coordinates
-					toMove.setXcoord(oldX); //Restores coordinates
-					toMove.setYcoord(oldY); //
-				}else { //if not, the move was OK.
-					moveOK = true; 
-				}
-			}
-			
-			/* If the king moved from a checked position and it went wrong, or a general error. */
-			if (!moveOK){ 
-				setPiece(toMove, toMove.getXcoord(), toMove.getYcoord()); //Moves the piece back to it's former location.
-				
-				/* Removes the striken piece from the list of striken pieces (if a piece was striken) */
-				if((toMove.getColor().equals(BLACK))){ //If white pieces striken
-					if(whiteGone.size() > oldWhiteSize){
-						setPiece((whiteGone.get(whiteGone.size() - 1)), toX, toY);
-						whiteGone.remove(whiteGone.size() - 1);
-					}else{ 											//If originally a blank field
-						setPiece(null, toX, toY); //Nulls the field.
-					}
-				}else { //if black pieces striken
-					if (blackGone.size() > oldBlackSize) {
-						setPiece((blackGone.get(blackGone.size() - 1)), toX, toY);
-						blackGone.remove(blackGone.size() - 1);
-					}else{ 											//If originally a blank field
-						setPiece(null, toX, toY);
-					}
-				}
-				return false; //On error we return a false. No explonation. Haven't bothered to give more info. This is not supposed to happen.
-			}
-		}
+		position.makeMove(Move.create(from, to));
 		
-		/* 
-		 * Tells the piece that it has moved.
-		 * If a king has been moved out of check, this has already been done, and this step is thus
-		 * skipped.
-		 */
-		if (!moveOK){
-			toMove.setXcoord(toX);
-			toMove.setYcoord(toY);
-		}
-		
-		/* Removes the passant-pawn striken (if striken), then clears the passant-flag. */
-		if (passant && !passantSetNow){
-			if(shadow != null){ //Clears if striken
-				if (shadow.getColor() == BLACK){ //if black
-					board[toY+1][toX] = null;
-				}else{ //if white
-					board[toY-1][toX] = null;
-				}
-			}
-			passant = false; //clears the passant-flag.
-		}
+		/* Tells the piece that it has moved. */
+		toMove.setXcoord(toX);
+		toMove.setYcoord(toY);
 		
 		/* changes turn */
-		if(toMove.getColor().equals(BLACK)){
-			lastTurnWas = BLACK;
-		}else {
-			lastTurnWas = WHITE;
-		}
-
-		/* Clears the isCheck-blocking flag: */
-		listingMovesForKing = null;
+		lastTurnWas = toMove.getColor();
+		position.setSideToMove(getTurn().ordinal());
+		syncCastlingRights();
 		return true;
 	}
 	
 	
 	/**
-	 * Method that checks if a move to the given coordinates for a piece is a legal move.
-	 * @param p The piece to be moved
-	 * @param x The new X-location
-	 * @param y The new Y-location
-	 * @return True if the piece can move here.
+	 * This function finds the positions a piece can move to according to the piece's position on the board.
+	 * Illegal and out-of-bounds moves are not returned. Works with all types of pieces.
+	 * @param p The piece you want to move.
+	 * @return A two-dimensional integer array containing the moves the brick can move to. Null if no moves.
 	 */
-	private boolean checkIfMoveIsLegal(Piece p, int x, int y){
-		int[][] movesList = listMoves(p);
-		for (int[] move : movesList) {
-			if(move[0] == x && move[1] == y){ return true; }
-		}
-		return false;
+	public int[][] listMoves(Piece p){
+		if(p == null){ return null; }
+		if(moveBuffer == null){ moveBuffer = new MoveList(); }
+		moveBuffer.clear();
+		listMoves(p, moveBuffer);
+		return moveBuffer.toCoordinates();
 	}
 	
 	
 	/**
-	 * General method for checking if a possible move is legal. Checks if the move results in a check.
-	 * This method is called by the {@link core.ChessBoard#listMoves(Piece) listMoves} function.
-	 * @param p
-	 * @param ret
-	 * @param xCoord
-	 * @param yCoord
-	 * @param moveX
-	 * @param moveY
-	 * @param movesSoFar
-	 * @return null if not, or the ret[][] array with added coordinates if OK.
+	 * Writes the legal moves of a piece to a list, encoded as in {@link core.Move}. The list is not cleared first.
+	 * @param p The piece you want to move.
+	 * @param list The list to add the moves to.
 	 */
-	private int[][] checkMoveIsPossible(Piece p, int[][] ret, int xCoord, int yCoord, 
-										int moveX, int moveY, int movesSoFar){
-		int legalMovesFound = movesSoFar;					//setting original state
-		Piece[][] tempBoard = new Piece[8][8];				//Creating a temporary board for keeping pieces.
-		tempBoard[yCoord][xCoord] = getPiece(xCoord, yCoord); //Grabs the piece to be moved.
-		setPiece(null, xCoord, yCoord);						//Nulls the original position
-		
-		/* Checks if there's a piece at coordinates testing for */
-		if (getPiece(moveX, moveY) != null){				
-			tempBoard[moveY][moveX] = getPiece(moveX, moveY); //moves this away from the board as well.
-		}
-		
-		/* Sets the piece to move to it's new coordinates */
-		setPiece(tempBoard[yCoord][xCoord], moveX, moveY);
-		
-		/* Checks if the king is in check after this move */
-		if(!(isCheck(findPiece(p.getColor(), "king")))){
-			ret[legalMovesFound][0] = moveX;		//If not in check this is a good time to add the moves to the list of good moves
-			ret[legalMovesFound++][1] = moveY;		//Post-incrementing the counter. 
-		}
-		
-		/* If there was a piece where we tried to see if the new piece would fit we should move it back */
-		if (tempBoard[moveY][moveX] != null){
-			setPiece(tempBoard[moveY][moveX], moveX, moveY);
-			tempBoard[moveY][moveX] = null;
-		}else{
-			setPiece(null, moveX, moveY); // If not, we should null the field.
-		}
-		
-		/* Then we should move the piece back where it was :) */
-		setPiece(tempBoard[yCoord][xCoord], xCoord, yCoord);
-		tempBoard[yCoord][xCoord] = null; //Blank it from the tempboard just in case.
-		if (legalMovesFound == movesSoFar){ //If the move wasn't a good one we just return null
-			return null;
-		}
-		return ret; //If the move was OK.
+	public void listMoves(Piece p, MoveList list){
+		position.generateMoves(Bitboards.square(p.getXcoord(), p.getYcoord()), list);
 	}
 	
 	
 	/**
-	 * General method for checking if a possible move is legal. Checks if the move results in a check.
-	 * This method is called by the {@link core.ChessBoard#listDirections(Piece) listDirections}  function.
-	 * @param p
-	 * @param xCoord
-	 * @param yCoord
-	 * @param moveX
-	 * @param moveY
-	 * @param movesSoFar
-	 * @return An Integer array with length two, or null.
+	 * Gives every legal move of a color to the sink, encoded as in {@link core.Move}. The generation stops early if
+	 * the sink returns false.
+	 * @param color
+	 * @param sink
+	 * @return False if the sink stopped the generation.
 	 */
-	private Integer[] checkMoveIsPossible(Piece p, int xCoord, int yCoord, 
-			int moveX, int moveY, int movesSoFar){
-		/*
-		 * See the int[][] version above for comments (int[][] checkMoveIsPossible())
-		 */
-		
-		int legalMovesFound = movesSoFar;
-		Integer[] ret = new Integer[2];
-		Piece[][] tempBoard = new Piece[8][8]; //For containing pieces not on the board.
-		
-		tempBoard[yCoord][xCoord] = getPiece(xCoord, yCoord);
-		setPiece(null, xCoord, yCoord);
-		if (getPiece(moveX, moveY) != null){
-			tempBoard[moveY][moveX] = getPiece(moveX, moveY);
-		}
-		setPiece(tempBoard[yCoord][xCoord], moveX, moveY);
-		if(!(isCheck(findPiece(p.getColor(), "king")))){
-			ret[0] = moveX;
-			ret[1] = moveY;
-			legalMovesFound++;
-		}
-		if (tempBoard[moveY][moveX] != null){
-			setPiece(tempBoard[moveY][moveX], moveX, moveY);
-			tempBoard[moveY][moveX] = null;
-		}else{
-			setPiece(null, moveX, moveY);
-		}
-		setPiece(tempBoard[yCoord][xCoord], xCoord, yCoord);
-		tempBoard[yCoord][xCoord] = null;
-		if (legalMovesFound == movesSoFar){
-			return null;
-		}
-		return ret;
-		}
-
+	public boolean generateAllMoves(ChessColor color, MoveSink sink){
+		return position.generateAllMoves(color.ordinal(), sink);
+	}
+	
 	
 	/**
-	 * This function finds the positions a piece can move to according to the piece's position on the board.
-	 * Illegal and out-of-bounds moves are not returned. Works with all types of pieces.
-	 * @param p The piece you want to move.
-	 * @return A two-dimensional integer array containing the moves the brick can move to.
+	 * Gives the legal captures and promotions of a color to the sink, encoded as in {@link core.Move}. Quiet moves
+	 * are left out.
+	 * @param color
+	 * @param sink
+	 * @return False if the sink stopped the generation.
 	 */
-	public int[][] listMoves(Piece p){
-		/*
-		 * This method only works with some of the pieces, but automaticly calls the correct method if.
-		 */
-		
-		if(p == null){ return null; }
-		if(p.getMoves() == null) { return listDirections(p); } //Depends on the type of piece. 
-		int xCoord = p.getXcoord();
-		int yCoord = p.getYcoord();
-		int legalMovesFound = 0;
-		final int[][] movesGotten = p.getMoves(); //Get the relative moves from the piece.
-		final int[][] moves = new int[movesGotten.length][2]; //Creates a table for copying the moves
-		int[][] ret = new int[moves.length][2]; 			  //Creates a table for returning the legal moves found
-		
-		/* Copies the moves to a new array. This is to make sure that we avoid bugs. We're not using arraycopy due to the
-		 * nature of the two-dimensional array. This way we know that we have control.
-		 */
-		for(int i = 0; i < moves.length; i++){
-			moves[i][0] = movesGotten[i][0];
-			moves[i][1] = movesGotten[i][1];
-		}
-		
-		/* Now we start running through the moves in table */
-		for(int move[] : moves){
-
-			/* Inverts moves to work with white pieces (the board is upside down coordinate-wise) */
-			if(p.getColor().equals(ChessColor.WHITE)){
-				move[0] *= -1;
-				move[1] *= -1;
-			}
-			
-			/* Sets the absolute coordinates */
-			int moveX = xCoord + move[0];
-			int moveY = yCoord + move[1];
-			
-			/* For all other than pawns. Due the to the pawn-nature of going diagonally when striking we'll handle those afterwards */
-			if (!(p instanceof pieces.Pawn)){
-				if ((moveX >= 0) && (moveX <= 7) && (moveY >= 0) && (moveY <= 7)){ //No point in bothering to pick up pieces outside of the board...
-					if (getPiece(moveX, moveY) == null || !(p.getColor().equals(getPiece(moveX, moveY).getColor()))){ //We can't stack pieces of the same color, and we can't strike them.
-						if (p instanceof pieces.King){ //I found myself a king. I want to threat him specially! :)
-							if (!(isCheck(moveX, moveY, p.getColor()))){ 	//Is he in check?
-								ret[legalMovesFound][0] = moveX;			//No? That's good!
-								ret[legalMovesFound++][1] = moveY;			//Post-incrementing the counter.
-							}
-						}else { //Not a pawn, not a king
-							
-							/* Calls the general controlmethod. */
-							int[][] temp = checkMoveIsPossible(p, ret, xCoord, yCoord, moveX, moveY, legalMovesFound);
-							if(temp != null){ // If something came back.
-								ret = temp; //switch the arrays.
-								legalMovesFound++; //increment the counter. New round!
-							}
-						}
-					}
-				}
-			} else { // If pawn **************************** Pawns are exceptional! 
-				if ((moveX >= 0) && (moveX <= 7) && (moveY >= 0) && (moveY <= 7)){ //Keepin' it real
-					if(moveX != xCoord){ //If he want's to move diagonally.
-						
-						/* Checking if there's a piece of opposing color where the pawn wants to go */
-						if(getPiece(moveX, moveY) != null && !(getPiece(moveX, moveY).getColor().equals(p.getColor()))){ 
-							
-							/* Calls the general check */
-							int[][] temp = checkMoveIsPossible(p, ret, xCoord, yCoord, moveX, moveY, legalMovesFound);
-							if(temp != null){ 	//If something came back
-								ret = temp; 	//switch the arrays
-								legalMovesFound++;
-							}
-						}
-						
-						/* If there wasn't something there, but the passant flag is set */
-						else if ((passant) && (shadowBoard[moveY][moveX] != null) // checks the shadowboard.
-								  && !(shadowBoard[moveY][moveX].getColor().equals(p.getColor()))){ //in case that the shadowboard hasn't been cleared properly, checks that it is of opposing color
-							
-							/* Calling the general check method */
-							int[][] temp = checkMoveIsPossible(p, ret, xCoord, yCoord, moveX, moveY, legalMovesFound);
-							if(temp != null){ 	//If something came back
-								ret = temp; 	//switch the arrays
-								legalMovesFound++;
-							}
-						}
-					}
-					
-					/* If the pawn wants to go forward */
-					else if(getPiece(moveX, moveY) == null){ //The space is not occupied.
-						
-						/* Complicated if:
-						 * If the move is one step - OK. If it's two steps and the one-step is okay.
-						 */
-						if(((Math.abs(moveY - yCoord) == 1)) || ((Math.abs(moveY - yCoord) == 2) 
-								&& (((p.getColor() == BLACK) && (getPiece(xCoord, yCoord + 1) == null)) 
-									|| ((p.getColor() == WHITE) && (getPiece(xCoord, yCoord - 1) == null))))){
-							
-							/* Calling the general check method */ 
-							int[][] temp = checkMoveIsPossible(p, ret, xCoord, yCoord, moveX, moveY, legalMovesFound);
-							if(temp != null){ 	//If something came back
-								ret = temp; 	//switch the arrays
-								legalMovesFound++;
-							}
-						}
-					}
-				}
-			}
-		}
-		
-		/* If it's a king and it thinks it can castle we have to check if that's possible */
-		if ((p instanceof pieces.King) && (p.canCastle())) { 
-			return checkCastle(p, ret, legalMovesFound); 
-		}
-		
-		/* If no possible moves found we return null */
-		if(legalMovesFound == 0) return null;
-		
-		/* Else we create a table of exact length and returns that instead */
-		return shortenList(ret, legalMovesFound);
+	public boolean generateCaptures(ChessColor color, MoveSink sink){
+		return position.generateCaptures(color.ordinal(), sink);
 	}
 	
+	
 	/**
-	 * Private function that does the other pieces.
-	 * @param p The piece you want to move.
-	 * @return A two-dimensional integer array containing the moves the brick can move to.
+	 * Static exchange evaluation: the material a move wins or loses once all the captures on its destination square
+	 * have been played out, each side capturing with its least valuable piece.
+	 * @param move A legal move, encoded as in {@link core.Move}
+	 * @return The material won by the side making the move, in centipawns.
 	 */
-	private int[][] listDirections(Piece p){
-		int xCoord = p.getXcoord();
-		int yCoord = p.getYcoord();
-		final int[][] moves = p.getMovableDirections(); //grabs the directions. 
-		ArrayList<Integer[]> ret = new ArrayList<Integer[]>(); //More practical with an arraylist than an array here.
-		
-		/* Goes through the possible axes. */
-		for(int move[] : moves){
-			
-			/* sets up for the first run */
-			int moveX = xCoord + move[0]; 
-			int moveY = yCoord + move[1];
-			while((moveX <= 7) && (moveX >= 0) && (moveY <= 7) && (moveY >= 0)){ //Keepin' it inside the board.
-				
-				/* If a blank field, or a field of opposing color */
-				if((getPiece(moveX, moveY) == null) || !(getPiece(moveX, moveY).getColor().equals(p.getColor()))){ 
-					
-					/* Calls the general method for checking */
-					Integer[] temp = checkMoveIsPossible(p,xCoord, yCoord, moveX, moveY, ret.size());
-					if(temp != null){ 	//If something came back
-						ret.add(temp);	//we add it to the arraylist
-					}
-				}
-				if(getPiece(moveX, moveY) != null){ break; } //If we met a piece along the way we can't jump it, hence we call break;
-				
-				/* But if we didn't break, we should set up for the next round. */
-				moveX += move[0];
-				moveY += move[1];
-			}
-			
-			/* 
-			 * Now that we hit the end of the board or another piece in one direction it's time to switch.
-			 * Setting moveX and Y for moving in the other direction 
-			 */
-			moveX = xCoord - move[0];
-			moveY = yCoord - move[1];
-			while((moveX <= 7) && (moveX >= 0) && (moveY <= 7) && (moveY >= 0)){ //Setting bounds
-				
-				/* If a blank field, or a field of opposing color */
-				if((getPiece(moveX, moveY) == null) || !(getPiece(moveX, moveY).getColor().equals(p.getColor()))){
-					
-					/* Calls the general method for checking */
-					Integer[] temp = checkMoveIsPossible(p,xCoord, yCoord, moveX, moveY, ret.size());
-					if(temp != null){ 	//If something came back
-						ret.add(temp);	//we add it to the arraylist
-					}
-				}
-				if(getPiece(moveX, moveY) != null){ break; } //Break if met a piece. 
-				
-				/* Or else we continue along the same path */
-				moveX -= move[0]; 
-				moveY -= move[1];
-			}
-		}
-		
-		/* All done. Now we check the size. */
-		if(ret.size() == 0){ return null; } //null if 0.
-		
-		/* Else we create a two-dimensional integer-array and return that instead of the arraylist */
-		int[][] temp = new int[ret.size()][2];
-		for(int i = 0; i < ret.size(); i++){
-			temp[i][0] = ret.get(i)[0].intValue();
-			temp[i][1] = ret.get(i)[1].intValue();
-		}
-		return temp; //The end
+	public int see(int move){
+		return position.see(move);
+	}
+	
+	
+	/**
+	 * Cheaper than see() when only a bound is needed, for instance to find out if a piece can be taken safely.
+	 * @param move A legal move, encoded as in {@link core.Move}
+	 * @param threshold In centipawns
+	 * @return True if see(move) >= threshold.
+	 */
+	public boolean seeGreaterOrEqual(int move, int threshold){
+		return position.seeGreaterOrEqual(move, threshold);
+	}
+	
+	
+	/**
+	 * Lists every legal move of a color.
+	 * @param color
+	 * @return One row of {from x, from y, to x, to y} per move. Promotions are listed once. Null if no moves.
+	 */
+	public int[][] listAllMoves(ChessColor color){
+		if(moveBuffer == null){ moveBuffer = new MoveList(); }
+		moveBuffer.clear();
+		generateAllMoves(color, moveBuffer);
+		return moveBuffer.toMoveCoordinates();
 	}
 		
 	
@@ -905,67 +669,6 @@ public class ChessBoard implements Serializable{
 		return blackGone;
 	}
 	
-	/**
-	 * Checks if a king that thinks it can castle actually can. Checks the rooks and looks for a clear path (King can not
-	 * be in check during the castling move).
-	 * @param king The king in question
-	 * @param legalMoves
-	 * @param legalMovesFound
-	 * @return A two-dimensional integer array containing the moves the brick can move to.
-	 */
-	private int[][] checkCastle(Piece king, int[][] legalMoves, int legalMovesFound){
-		/*
-		 * The checkCastle method assumes that the legalMoves list has enough space to store two additional moves.
-		 * This is assured because the list in it's first dimension is of size 8, but the number of legal moves found for
-		 * a king that can castle is a maximum of 5 due to the king being unable to walk of the board.
-		 */
-
-		/*
-		 * Checks if the King will be put in check during the castling move
-		 * by manually calling ischeck for the kings path across both directions. Here in positive X-direction.
-		 */
-		if ((!(isCheck(king.getXcoord()+1, king.getYcoord(), king.getColor()))
-			 && !(isCheck(king.getXcoord()+2, king.getYcoord(), king.getColor())))) {   
-				
-			/* Checks positive x-path. If a clear path to the Rook the king can perform the castling... */
-			int counter = king.getXcoord() + 1;
-			while ((counter >= 0) && (counter <=7)){
-				Piece found = null;
-				if((found = getPiece(counter, king.getYcoord())) != null){
-					if (found.canCastle()){ 			//..., but only if the rook hasn't been moved. (other pieces return false anyways.
-						legalMoves[legalMovesFound][0] = king.getXcoord() + 2; 	//Adds the kings castling move to the list of legal moves.
-						legalMoves[legalMovesFound++][1] = king.getYcoord();	//Further handling is done within the the movePiece() method.
-					}
-					break; //No need to continue the while when a piece is found.
-				}
-				counter++; //Increments the counter.
-			}
-		}
-
-		/* Checks that the king will not be put in check during the castling move for negative x */
-		if ((!(isCheck(king.getXcoord()-1, king.getYcoord(), king.getColor()))
-		     && !(isCheck(king.getXcoord()-2, king.getYcoord(), king.getColor())))) {   
-			
-			/* Checks negative X-path. Same as above */ 
-			int counter = king.getXcoord() - 1;
-			while ((counter >= 0) && (counter <=7)){
-				Piece found = null;
-				if((found = getPiece(counter, king.getYcoord())) != null){
-					if (found.canCastle()){
-						legalMoves[legalMovesFound][0] = king.getXcoord() - 2;
-						legalMoves[legalMovesFound++][1] = king.getYcoord();
-					}
-					break;
-				}
-				counter--; //Decrements the counter.
-			}
-		}
-		
-		/* If no moves found we return null so that we don't get errors when checking for mate */
-		if (legalMovesFound == 0){ return null; }
-		return shortenList(legalMoves, legalMovesFound); //Shortens the list and returns it.
-	}
-	
 	/**
 	 * Checks whether or not the king is in check at it's current position.
 	 * @param king
@@ -985,84 +688,10 @@ public class ChessBoard implements Serializable{
 	 */
 	public boolean isCheck(int xCoord, int yCoord, ChessColor color){
 		
-		/* isCheck is onlye run for the color whose turn it is. Returns false for other colors. */
-		if (listingMovesForKing != null && listingMovesForKing != color){ return false; }
-		listingMovesForKing = getTurn();
-		
-		/* Sets local variables */
-		final int kingX = xCoord;
-		final int kingY = yCoord;
-		int kingMovedFromX = -1; //This makes sure any error will throw an out of bounds for the array.
-		int kingMovedFromY = -1; //And makes sure theres consistency between segments (if's and else's)
-		int[][] list = null;
-		
-		/* Moves king or piece at coordinate from board to shadowboard to properly check all positions */
-		if ((board[kingY][kingX] != null) && (board[kingY][kingX] instanceof pieces.King)){ //If King at coordinates
-			if (board[kingY][kingX].getColor() != color){
-				return false; // If another king is at the selected position. Must be allowed to strike. Should not be able to get in such a position
-			}
-			else{
-				shadowBoard[kingY][kingX] = board[kingY][kingX]; 	//copies reference
-				board[kingY][kingX] = null;							//deletes original
-				kingMovedFromX = kingX;								//stores coordinates for safety.
-				kingMovedFromY = kingY;
-			}
-		}else if ((board[kingY][kingX] != null) && (board[kingY][kingX].getColor() != color)){ //if opposing color at coordinates
-			shadowBoard[kingY][kingX] = board[kingY][kingX];
-			board[kingY][kingX] = null;
-			boolean isCheckReturned = isCheck(kingX, kingY, color);		//Calls isCheck for the new coordinates and stores them
-			
-			/* Restores pieces */
-			board[kingY][kingX] = shadowBoard[kingY][kingX];
-			shadowBoard[kingY][kingX] = null;
-			
-			/* finished */
-			return isCheckReturned;
-		}else { //If king not given, removes the king from the board to make sure it does not interfere with the isCheck() process.
-			Piece found = findPiece(color, "king");
-			kingMovedFromX = found.getXcoord();
-			kingMovedFromY = found.getYcoord();
-			shadowBoard[kingMovedFromY][kingMovedFromX] = board[kingMovedFromY][kingMovedFromX];
-			board[kingMovedFromY][kingMovedFromX] = null;
-		}
-		
-		/* Runs through all the pieces */
-		try{ 
-			for (Piece p[] : board) {
-				for (Piece piece : p) {
-					if((piece != null) && (piece.getColor() != color)){ //Checks only the opposing color
-						
-						/*
-						 * First: If a king tries to strike a piece secured by a pawn, this piece will have 
-						 * been removed in the first iteration. Then will isCheck be called again, and then this 
-						 * bit does the trick of getting the pawn to tell if it's willing to strike or not.
-						 */
-						if ((piece instanceof pieces.Pawn) && (getPiece(kingX, kingY) == null)){
-							setPiece((new Pawn(0 ,kingX, kingY, color)), kingX, kingY);
-							list = listMoves(piece);
-							setPiece(null, kingX, kingY);
-						}else { //For all other pieces than pawns. If a piece is striken, only the second iteration will get here.
-								list = listMoves(piece);
-						}
-						
-						/* Checks if the list of moves returned is corresponding with the position of the king (real or theoretical) */ 
-						if (list != null){
-							for (int[] moves : list) {
-								if ((moves[0] == kingX) && (moves[1] == kingY)){ //If piece is able to move to the kings position.
-									return true;
-								}
-							}
-						}
-					}
-				}
-			}
-			return false;
-		}finally {
-			
-			/* Cleaning up. Moves any moved/hidden pieces back to where they where */
-			board[kingMovedFromY][kingMovedFromX] = shadowBoard[kingMovedFromY][kingMovedFromX];
-			shadowBoard[kingMovedFromY][kingMovedFromX] = null;
-		}
+		/* The king is taken off the board, so that it doesn't block the attacks along the line it is moving on. */
+		int kingColor = color.ordinal();
+		long occupied = position.getOccupied() & ~position.getPieces(kingColor, Position.KING);
+		return position.isSquareAttacked(Bitboards.square(xCoord, yCoord), kingColor ^ 1, occupied);
 	}
 	
 	
@@ -1073,12 +702,7 @@ public class ChessBoard implements Serializable{
 	 * @return True if no legal moves left.
 	 */
 	public boolean isStaleMate(ChessColor color){
-		for(Piece pieces[] : board){
-			for (Piece piece : pieces) {
-				if ((piece != null) && (piece.getColor() == color) && (listMoves(piece) != null)){ return false; }
-			}
-		}
-		return true;
+		return !position.hasLegalMove(color.ordinal());
 	}
 	
 	
@@ -0,0 +1,197 @@
+/*
+ * Magics.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+/**
+ * Magic bitboard tables for the attacks of rooks and bishops. Only the pieces on the lines through the square
+ * (the mask, leaving out the edges) can change which squares are attacked. Multiplying those pieces by the
+ * square's magic number packs them into the top bits, which are used as an index into a table of attack sets.
+ * The magic numbers below were found by searching random numbers with few bits set, from a fixed seed. They are
+ * checked when the tables are built, and a new number is searched for if one of them doesn't work.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+final class Magics {
+	private static final long ROWS_0_7 = 0xFF000000000000FFL;
+	private static final long COLUMNS_0_7 = 0x8181818181818181L;
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] ROOK_MAGICS = {
+		0x0080102080004002L, 0x0140004210002000L, 0x0600088040221200L, 0x0080100008008004L,
+		0x2080080002040080L, 0x0100010004000802L, 0x0080020001000080L, 0x11800030C2800100L,
+		0x2908800080400021L, 0x2084400020005008L, 0x0002001084220240L, 0x8000808010000800L,
+		0xC000800400080080L, 0x0006000200300804L, 0x0304000208017410L, 0x0012000200408104L,
+		0x0003828000400060L, 0x2840010020410882L, 0x00A0004010004800L, 0x060901002010000AL,
+		0x0000818008000C00L, 0x0102008004008002L, 0x9208040008020110L, 0x24000A0014284081L,
+		0x42B04001800090A2L, 0x0405200440100042L, 0x8011004100102001L, 0x0000090100100024L,
+		0x0018000880800400L, 0x7012002280040080L, 0x0082004200080144L, 0x1010004200008429L,
+		0x2000400020800080L, 0x01A0400080802000L, 0x0201100084802000L, 0x7010040040400800L,
+		0x0001001005000800L, 0x0002000400800280L, 0x04A0108A04000928L, 0x281808805A000104L,
+		0x8220204000808000L, 0x1300201000414000L, 0x001C91A001010040L, 0x0E50008008008010L,
+		0x2010080100050010L, 0x2602001008020004L, 0x0020100102040008L, 0x8400008069020004L,
+		0x0000502201088200L, 0x890A002080410200L, 0x0142812000100880L, 0x0040821000280280L,
+		0x0808000400420040L, 0x8080800200040080L, 0x4400420811101400L, 0x1000010080440200L,
+		0x408201002C401082L, 0x0018400100281081L, 0x0A051200408880A2L, 0x0000200900041001L,
+		0x00D3001208003005L, 0x4041000400020801L, 0x004000A110081204L, 0x1000009024410402L
+	};
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] ROOK_OFFSETS = new int[64];
+	private static final long[] ROOK_TABLE;
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final long[] BISHOP_MAGICS = {
+		0x00310110140180A0L, 0x0004102602430010L, 0x0042120443010050L, 0x4004040089900000L,
+		0x0014050410028004L, 0x01008210C0000005L, 0x0000420804410000L, 0x2011010050220800L,
+		0x00200A101000B100L, 0x0000624204010208L, 0x0000102110410200L, 0x0400080681003000L,
+		0x10202202110A8602L, 0x4008420804060801L, 0x2000610802900402L, 0x0120210048048420L,
+		0x40C0401090010100L, 0x4521000808410648L, 0x2101000808042080L, 0x0104244202020038L,
+		0x2201004490400019L, 0x0002800410008800L, 0x020100608C102200L, 0x0803202044060840L,
+		0x1804110120200104L, 0x0110100843042103L, 0x0040404208008108L, 0x0006080084004088L,
+		0x4001040002002111L, 0x4000410002008208L, 0x450200802C088840L, 0x018042010100820CL,
+		0x021812400051AC08L, 0x0028821040283020L, 0x8084040400020821L, 0x1800202020480080L,
+		0x0060088400008202L, 0x0010220201102094L, 0x0062020201004800L, 0x0482106200010084L,
+		0x220801D010000800L, 0x924C111808908200L, 0x0200101804040808L, 0x00040042008C1801L,
+		0x0010480104004243L, 0x0010105010206040L, 0x1022104441004480L, 0x4004030546010916L,
+		0x40060804024A1048L, 0x4430808410020000L, 0x8000010041101000L, 0x0202089042022404L,
+		0x8005000411440801L, 0x0001403821410041L, 0x0028980184040201L, 0x0051520604002800L,
+		0x1054804800842044L, 0x0802030088942080L, 0x0029040A02011483L, 0x2001004220420200L,
+		0x0410400040082220L, 0x4028024004080084L, 0x1002104408880040L, 0x4040104210404881L
+	};
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	private static final long[] BISHOP_TABLE;
+
+	private static long seed = 0x7A4C3D2E1F0B9687L;
+
+	static {
+		ROOK_TABLE = init(true, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+		BISHOP_TABLE = init(false, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+	}
+
+	private Magics(){}
+
+	/**
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a rook on the square attacks, including the first piece in each direction.
+	 */
+	static long rookAttacks(int square, long occupied){
+		return ROOK_TABLE[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	/**
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of the squares a bishop on the square attacks, including the first piece in each direction.
+	 */
+	static long bishopAttacks(int square, long occupied){
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	/**
+	 * Finds the masks for one type of piece and fills its attack table. Each square gets its own part of the table,
+	 * starting at its offset.
+	 * @param rook True for rooks, false for bishops
+	 * @param masks
+	 * @param magics
+	 * @param shifts
+	 * @param offsets
+	 * @return The attack table
+	 */
+	private static long[] init(boolean rook, long[] masks, long[] magics, int[] shifts, int[] offsets){
+		int size = 0;
+		for (int sq = 0; sq < 64; sq++){
+			long edges = (ROWS_0_7 & ~(0xFFL << (Bitboards.getY(sq) * 8))) | (COLUMNS_0_7 & ~(0x0101010101010101L << Bitboards.getX(sq)));
+			masks[sq] = rays(rook, sq, 0) & ~edges;
+			shifts[sq] = 64 - Long.bitCount(masks[sq]);
+			offsets[sq] = size;
+			size += 1 << Long.bitCount(masks[sq]);
+		}
+
+		long[] table = new long[size];
+		long[] occupancies = new long[4096];
+		long[] attacks = new long[4096];
+		int[] tried = new int[4096]; //the attempt that last used each index
+		for (int sq = 0; sq < 64; sq++){
+
+			/* Every subset of the mask, and the attacks for it */
+			int count = 0;
+			long subset = 0;
+			do {
+				occupancies[count] = subset;
+				attacks[count++] = rays(rook, sq, subset);
+				subset = (subset - masks[sq]) & masks[sq];
+			} while (subset != 0);
+
+			/* The stored magic number is tried first. Then random numbers with few bits set are tried until one maps
+			 * the subsets without collisions. Two subsets may share an index if they give the same attacks. */
+			java.util.Arrays.fill(tried, 0, count, 0);
+			for (int attempt = 1; ; attempt++){
+				long magic = attempt == 1 ? magics[sq] : next() & next() & next();
+				if (Long.bitCount((masks[sq] * magic) >>> 56) < 6){ continue; }
+
+				boolean found = true;
+				for (int i = 0; i < count && found; i++){
+					int index = offsets[sq] + (int) ((occupancies[i] * magic) >>> shifts[sq]);
+					if (tried[index - offsets[sq]] != attempt){
+						tried[index - offsets[sq]] = attempt;
+						table[index] = attacks[i];
+					}else if (table[index] != attacks[i]){
+						found = false;
+					}
+				}
+				if (found){
+					magics[sq] = magic;
+					break;
+				}
+			}
+		}
+		return table;
+	}
+
+	private static long rays(boolean rook, int square, long occupied){
+		return rook ? Bitboards.rookRays(square, occupied) : Bitboards.bishopRays(square, occupied);
+	}
+
+	/**
+	 * xorshift64* pseudo random number generator.
+	 * @return The next random number
+	 */
+	private static long next(){
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+}
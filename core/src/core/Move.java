@@ -0,0 +1,149 @@
+/*
+ * Move.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+/**
+ * Moves are encoded in a single int, so that they can be stored and passed around without creating objects.
+ * Bit 0-5 is the square moved from, bit 6-11 the square moved to and bit 12-14 the type a pawn is promoted to
+ * (0 if not a promotion). Bit 15-18 are flags set by the move generator, telling what kind of move it is.
+ * Position.makeMove() does not need the flags, so a move typed in by a player can be made without them.
+ * 0 is never a legal move, and is used for "no move".
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class Move {
+	public static final int NONE = 0;
+
+	/* Flags */
+	public static final int CAPTURE = 1 << 15;
+	public static final int DOUBLE_PUSH = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLING = 1 << 18;
+
+	/* All bits used by a move, and the bits without the flags */
+	public static final int MASK = (1 << 19) - 1;
+	private static final int SQUARES_MASK = (1 << 15) - 1;
+
+	private Move(){}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return A move without promotion.
+	 */
+	public static int create(int from, int to){
+		return from | (to << 6);
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @param promotion Position.KNIGHT, BISHOP, ROOK or QUEEN. 0 if not a promotion.
+	 * @return The move
+	 */
+	public static int create(int from, int to, int promotion){
+		return from | (to << 6) | (promotion << 12);
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @param promotion Position.KNIGHT, BISHOP, ROOK or QUEEN. 0 if not a promotion.
+	 * @param flags Any of CAPTURE, DOUBLE_PUSH, EN_PASSANT and CASTLING
+	 * @return The move
+	 */
+	public static int create(int from, int to, int promotion, int flags){
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+
+	public static int from(int move){
+		return move & 63;
+	}
+
+	public static int to(int move){
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * @param move
+	 * @return The type the pawn is promoted to, or 0 if the move is not a promotion.
+	 */
+	public static int promotion(int move){
+		return (move >>> 12) & 7;
+	}
+
+	public static boolean isCapture(int move){
+		return (move & CAPTURE) != 0;
+	}
+
+	public static boolean isDoublePush(int move){
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	public static boolean isEnPassant(int move){
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isCastling(int move){
+		return (move & CASTLING) != 0;
+	}
+
+	/**
+	 * @param move
+	 * @return The move without flags. Used to compare a generated move with one typed in by a player.
+	 */
+	public static int withoutFlags(int move){
+		return move & SQUARES_MASK;
+	}
+
+	/**
+	 * @param move
+	 * @return The move in coordinate notation, ie. "e2e4" or "a7a8q".
+	 */
+	public static String toString(int move){
+		String ret = squareName(from(move)) + squareName(to(move));
+		if (promotion(move) != 0){
+			ret += "pnbrqk".charAt(promotion(move));
+		}
+		return ret;
+	}
+
+	/**
+	 * @param square
+	 * @return The name of the square, ie. "e4". Rank 8 is y = 0.
+	 */
+	public static String squareName(int square){
+		return "" + (char) ('a' + Bitboards.getX(square)) + (8 - Bitboards.getY(square));
+	}
+}
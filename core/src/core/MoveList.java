@@ -0,0 +1,159 @@
+/*
+ * MoveList.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+/**
+ * A list of moves (see {@link core.Move}) backed by an int array. Meant to be allocated once and cleared and
+ * refilled for every position, so that generating moves doesn't create any objects. As a MoveSink it accepts
+ * every move it is given.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class MoveList implements MoveSink {
+	/* No position has more than 218 legal moves */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final int[] moves;
+	private int size;
+
+	/**
+	 * Creates a list with room for any legal position.
+	 */
+	public MoveList(){
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity The maximum number of moves the list can hold.
+	 */
+	public MoveList(int capacity){
+		moves = new int[capacity];
+	}
+
+	/**
+	 * @param move
+	 */
+	public void add(int move){
+		moves[size++] = move;
+	}
+
+	public boolean accept(int move){
+		add(move);
+		return true;
+	}
+
+	/**
+	 * @param index
+	 * @return The move at the index.
+	 */
+	public int get(int index){
+		return moves[index];
+	}
+
+	/**
+	 * Replaces the move at the index. Used when sorting moves in place.
+	 * @param index
+	 * @param move
+	 */
+	public void set(int index, int move){
+		moves[index] = move;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * Removes all moves. The array is kept.
+	 */
+	public void clear(){
+		size = 0;
+	}
+
+	/**
+	 * Converts the list to the format used by ChessBoard.listMoves(): one {x, y} row per destination square.
+	 * A promotion is only listed once, as the queen promotion.
+	 * @return The destination squares, or null if the list is empty.
+	 */
+	public int[][] toCoordinates(){
+		int count = 0;
+		for (int i = 0; i < size; i++){
+			if (isListed(moves[i])){ count++; }
+		}
+		if (count == 0){ return null; }
+
+		int[][] ret = new int[count][2];
+		for (int i = 0, j = 0; i < size; i++){
+			if (isListed(moves[i])){
+				ret[j][0] = Bitboards.getX(Move.to(moves[i]));
+				ret[j][1] = Bitboards.getY(Move.to(moves[i]));
+				j++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Converts the list to rows of {from x, from y, to x, to y}. A promotion is only listed once, as the queen
+	 * promotion.
+	 * @return The moves, or null if the list is empty.
+	 */
+	public int[][] toMoveCoordinates(){
+		int count = 0;
+		for (int i = 0; i < size; i++){
+			if (isListed(moves[i])){ count++; }
+		}
+		if (count == 0){ return null; }
+
+		int[][] ret = new int[count][4];
+		for (int i = 0, j = 0; i < size; i++){
+			if (isListed(moves[i])){
+				ret[j][0] = Bitboards.getX(Move.from(moves[i]));
+				ret[j][1] = Bitboards.getY(Move.from(moves[i]));
+				ret[j][2] = Bitboards.getX(Move.to(moves[i]));
+				ret[j][3] = Bitboards.getY(Move.to(moves[i]));
+				j++;
+			}
+		}
+		return ret;
+	}
+
+	private static boolean isListed(int move){
+		return Move.promotion(move) == 0 || Move.promotion(move) == Position.QUEEN;
+	}
+}
@@ -0,0 +1,1085 @@
+/*
+ * Position.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+import java.io.Serializable;
+
+import core.eval.Accumulator;
+import core.eval.PieceSquareTables;
+
+/**
+ * Bitboard representation of a chess position. One long per piece type and color, occupancy masks,
+ * side to move, castling rights and en passant square, and a Zobrist key of it all. The ChessBoard keeps a
+ * Position in sync with its Piece objects and uses it for all move generation and check detection.
+ *
+ * Squares are numbered y * 8 + x (see {@link core.Bitboards}). Black starts at the low y-values and moves in
+ * positive y-direction, white starts at the high y-values. Colors are numbered as ChessColor.ordinal().
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class Position implements Serializable {
+	private static final long serialVersionUID = 4416851325064392817L;
+
+	/* Colors. Same order as ChessColor.ordinal() */
+	public static final int BLACK = 0;
+	public static final int WHITE = 1;
+
+	/* Piece types */
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	/* Piece codes are color * 6 + type. */
+	public static final int EMPTY = -1;
+
+	/* Castling rights. Short castling is towards x = 7. */
+	public static final int BLACK_SHORT = 1;
+	public static final int BLACK_LONG = 2;
+	public static final int WHITE_SHORT = 4;
+	public static final int WHITE_LONG = 8;
+
+	public static final int NO_SQUARE = -1;
+
+	/* Flag in the undo information, set if a castling move also moved the rook */
+	private static final long CASTLED = 1L << 19;
+
+	/* The squares the kings and rooks start on, used for the castling rights */
+	private static final int[] KING_HOME = {Bitboards.square(4, 0), Bitboards.square(4, 7)};
+	private static final int[] CASTLING_MASK = new int[64];
+
+	/* Piece values in centipawns for the static exchange evaluation, indexed by type. The king can't be captured, so
+	 * capturing with it only works if nothing recaptures */
+	private static final int[] SEE_VALUES = {100, 300, 300, 500, 900, 20000};
+
+	/* The first and last rows, where pawns are promoted */
+	private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+
+	/* Stops the move generation at the first move */
+	private static final MoveSink FIRST_MOVE = new MoveSink(){
+		public boolean accept(int move){
+			return false;
+		}
+	};
+
+	static {
+		for (int sq = 0; sq < 64; sq++){
+			CASTLING_MASK[sq] = 15;
+		}
+		CASTLING_MASK[Bitboards.square(4, 0)] &= ~(BLACK_SHORT | BLACK_LONG);
+		CASTLING_MASK[Bitboards.square(7, 0)] &= ~BLACK_SHORT;
+		CASTLING_MASK[Bitboards.square(0, 0)] &= ~BLACK_LONG;
+		CASTLING_MASK[Bitboards.square(4, 7)] &= ~(WHITE_SHORT | WHITE_LONG);
+		CASTLING_MASK[Bitboards.square(7, 7)] &= ~WHITE_SHORT;
+		CASTLING_MASK[Bitboards.square(0, 7)] &= ~WHITE_LONG;
+	}
+
+	private final long[] pieces = new long[12]; //indexed by piece code
+	private final long[] colors = new long[2];
+	private long occupied;
+	private final byte[] squares = new byte[64];
+
+	private int sideToMove = WHITE;
+	private int castling;
+	private int epSquare = NO_SQUARE;
+	private int halfmoveClock;
+	private long key; //Zobrist key, see core.Zobrist
+	private long pawnKey; //Zobrist key of the pawns only
+
+	/* Material and piece-square sums for white minus black, and the game phase, see core.eval.PieceSquareTables */
+	private int middlegameScore;
+	private int endgameScore;
+	private int phase;
+
+	/* Kept up to date with the pieces if set, see core.eval.NnueEvaluator. Not copied with the position. */
+	private transient Accumulator accumulator;
+
+	/* Check and pin information for one color, kept until a piece is put or removed. See updateCheckInfo(). */
+	private transient boolean checkInfoValid;
+	private transient int checkInfoColor;
+	private transient int checkInfoKing;
+	private transient long checkers;
+	private transient long pinned;
+	private transient long evasionMask;
+
+	/* The gains of each capture in see(), made on the first call so that the exchanges don't allocate */
+	private transient int[] swapList;
+
+
+	/**
+	 * Creates an empty position with white to move.
+	 */
+	public Position(){
+		for (int sq = 0; sq < 64; sq++){
+			squares[sq] = EMPTY;
+		}
+	}
+
+	/**
+	 * Creates a copy of the given position.
+	 * @param other
+	 */
+	public Position(Position other){
+		copyFrom(other);
+	}
+
+	/**
+	 * Overwrites this position with the state of another position.
+	 * @param other
+	 */
+	public void copyFrom(Position other){
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.colors, 0, colors, 0, colors.length);
+		System.arraycopy(other.squares, 0, squares, 0, squares.length);
+		occupied = other.occupied;
+		sideToMove = other.sideToMove;
+		castling = other.castling;
+		epSquare = other.epSquare;
+		halfmoveClock = other.halfmoveClock;
+		key = other.key;
+		pawnKey = other.pawnKey;
+		middlegameScore = other.middlegameScore;
+		endgameScore = other.endgameScore;
+		phase = other.phase;
+		checkInfoValid = false;
+		if (accumulator != null){ accumulator.invalidate(); }
+	}
+
+
+	/**
+	 * Creates a position from a FEN string. Rank 8 is y = 0 and the a-file is x = 0, which matches the
+	 * layout of the ChessBoard (black at the top).
+	 * @param fen
+	 * @return The position
+	 * @throws IllegalArgumentException If the string can not be parsed.
+	 */
+	public static Position fromFen(String fen) throws IllegalArgumentException{
+		Position pos = new Position();
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 2){ throw new IllegalArgumentException("Not a FEN string: " + fen); }
+		int x = 0;
+		int y = 0;
+		for (char c : fields[0].toCharArray()){
+			if (c == '/'){
+				x = 0;
+				y++;
+			}else if (c >= '1' && c <= '8'){
+				x += c - '0';
+			}else {
+				int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+				if (type < 0 || !Bitboards.onBoard(x, y)){ throw new IllegalArgumentException("Not a FEN string: " + fen); }
+				pos.put(piece(Character.isUpperCase(c) ? WHITE : BLACK, type), Bitboards.square(x++, y));
+			}
+		}
+		pos.sideToMove = fields[1].equals("b") ? BLACK : WHITE;
+		if (fields.length > 2){
+			String rights = fields[2];
+			if (rights.indexOf('K') >= 0){ pos.castling |= WHITE_SHORT; }
+			if (rights.indexOf('Q') >= 0){ pos.castling |= WHITE_LONG; }
+			if (rights.indexOf('k') >= 0){ pos.castling |= BLACK_SHORT; }
+			if (rights.indexOf('q') >= 0){ pos.castling |= BLACK_LONG; }
+		}
+		if (fields.length > 3 && !fields[3].equals("-")){
+			int sq = Bitboards.square(fields[3].charAt(0) - 'a', 8 - (fields[3].charAt(1) - '0'));
+			if ((Bitboards.pawnAttacks(pos.sideToMove ^ 1, sq) & pos.getPieces(pos.sideToMove, PAWN)) != 0){
+				pos.epSquare = sq;
+			}
+		}
+		if (fields.length > 4){
+			pos.halfmoveClock = Integer.parseInt(fields[4]);
+		}
+		pos.key ^= pos.stateKey(); //The pieces are already hashed by put()
+		return pos;
+	}
+
+	/**
+	 * @return The position as a FEN string.
+	 */
+	public String toFen(){
+		StringBuilder sb = new StringBuilder();
+		for (int y = 0; y < 8; y++){
+			int empty = 0;
+			for (int x = 0; x < 8; x++){
+				int p = squares[Bitboards.square(x, y)];
+				if (p == EMPTY){
+					empty++;
+					continue;
+				}
+				if (empty > 0){ sb.append(empty); }
+				empty = 0;
+				char c = "pnbrqk".charAt(typeOf(p));
+				sb.append(colorOf(p) == WHITE ? Character.toUpperCase(c) : c);
+			}
+			if (empty > 0){ sb.append(empty); }
+			if (y < 7){ sb.append('/'); }
+		}
+		sb.append(sideToMove == WHITE ? " w " : " b ");
+		if (castling == 0){ sb.append('-'); }
+		if ((castling & WHITE_SHORT) != 0){ sb.append('K'); }
+		if ((castling & WHITE_LONG) != 0){ sb.append('Q'); }
+		if ((castling & BLACK_SHORT) != 0){ sb.append('k'); }
+		if ((castling & BLACK_LONG) != 0){ sb.append('q'); }
+		if (epSquare == NO_SQUARE){
+			sb.append(" -");
+		}else {
+			sb.append(' ').append((char) ('a' + Bitboards.getX(epSquare))).append(8 - Bitboards.getY(epSquare));
+		}
+		return sb.append(' ').append(halfmoveClock).append(" 1").toString();
+	}
+
+
+	/**
+	 * @param color
+	 * @param type
+	 * @return The piece code for the given color and type.
+	 */
+	public static int piece(int color, int type){
+		return color * 6 + type;
+	}
+
+	/**
+	 * @param piece A piece code (not EMPTY)
+	 * @return The color of the piece.
+	 */
+	public static int colorOf(int piece){
+		return piece >= 6 ? WHITE : BLACK;
+	}
+
+	/**
+	 * @param piece A piece code (not EMPTY)
+	 * @return The type of the piece.
+	 */
+	public static int typeOf(int piece){
+		return piece >= 6 ? piece - 6 : piece;
+	}
+
+
+	/**
+	 * @param square
+	 * @return The piece code at the square, or EMPTY.
+	 */
+	public int getPiece(int square){
+		return squares[square];
+	}
+
+	/**
+	 * @param color
+	 * @param type
+	 * @return Bitboard of the pieces of the given color and type.
+	 */
+	public long getPieces(int color, int type){
+		return pieces[piece(color, type)];
+	}
+
+	/**
+	 * @param color
+	 * @return Bitboard of all the pieces of the given color.
+	 */
+	public long getOccupancy(int color){
+		return colors[color];
+	}
+
+	/**
+	 * @return Bitboard of all the pieces on the board.
+	 */
+	public long getOccupied(){
+		return occupied;
+	}
+
+	public int getSideToMove(){
+		return sideToMove;
+	}
+
+	public void setSideToMove(int color){
+		key ^= stateKey();
+		sideToMove = color;
+		key ^= stateKey();
+	}
+
+	public int getCastlingRights(){
+		return castling;
+	}
+
+	public void setCastlingRights(int rights){
+		key ^= stateKey();
+		castling = rights;
+		key ^= stateKey();
+	}
+
+	/**
+	 * @return The square a pawn can strike en passant, or NO_SQUARE. Only set if a pawn can actually strike.
+	 */
+	public int getEnPassantSquare(){
+		return epSquare;
+	}
+
+	/**
+	 * @return Number of moves since the last capture or pawn move.
+	 */
+	public int getHalfmoveClock(){
+		return halfmoveClock;
+	}
+
+	/**
+	 * The key is updated with every change, and two positions with the same pieces, side to move, castling rights
+	 * and en passant square get the same key.
+	 * @return The 64-bit Zobrist key of the position.
+	 */
+	public long getKey(){
+		return key;
+	}
+
+	/**
+	 * @return A Zobrist key of the pawns alone. Positions with the same pawns have the same pawn key, which is used
+	 * to look up pawn structure evaluations (see core.eval.PawnHashTable). 0 if there are no pawns.
+	 */
+	public long getPawnKey(){
+		return pawnKey;
+	}
+
+	/**
+	 * @return The neural network accumulator kept up to date with the pieces, or null.
+	 */
+	public Accumulator getAccumulator(){
+		return accumulator;
+	}
+
+	/**
+	 * Sets an accumulator to tell about every piece that is put or removed from now on.
+	 * @param accumulator The accumulator, or null to stop updating one.
+	 */
+	public void setAccumulator(Accumulator accumulator){
+		this.accumulator = accumulator;
+	}
+
+	/**
+	 * @return The middlegame material and piece-square score of white minus that of black, in centipawns.
+	 * Kept up to date as pieces are moved, see core.eval.PieceSquareTables.
+	 */
+	public int getMiddlegameScore(){
+		return middlegameScore;
+	}
+
+	/**
+	 * @return The endgame material and piece-square score of white minus that of black, in centipawns.
+	 */
+	public int getEndgameScore(){
+		return endgameScore;
+	}
+
+	/**
+	 * @return The game phase: the sum of the phase weights of the pieces on the board. Can be more than
+	 * PieceSquareTables.MAX_PHASE after promotions.
+	 */
+	public int getPhase(){
+		return phase;
+	}
+
+	/**
+	 * @return The part of the key that is not pieces: castling rights, en passant file and side to move.
+	 */
+	private long stateKey(){
+		long ret = Zobrist.CASTLING[castling];
+		if (epSquare != NO_SQUARE){
+			ret ^= Zobrist.EN_PASSANT[Bitboards.getX(epSquare)];
+		}
+		return sideToMove == BLACK ? ret ^ Zobrist.BLACK_TO_MOVE : ret;
+	}
+
+	/**
+	 * @param color
+	 * @return The square of the king of the given color, or NO_SQUARE if there is no king.
+	 */
+	public int kingSquare(int color){
+		long king = pieces[piece(color, KING)];
+		return king == 0 ? NO_SQUARE : Bitboards.firstSquare(king);
+	}
+
+
+	/**
+	 * Puts a piece on an empty square.
+	 * @param piece
+	 * @param square
+	 */
+	public void put(int piece, int square){
+		long b = 1L << square;
+		pieces[piece] |= b;
+		colors[colorOf(piece)] |= b;
+		occupied |= b;
+		squares[square] = (byte) piece;
+		key ^= Zobrist.PIECES[piece][square];
+		if (typeOf(piece) == PAWN){ pawnKey ^= Zobrist.PIECES[piece][square]; }
+		middlegameScore += PieceSquareTables.middlegame(piece, square);
+		endgameScore += PieceSquareTables.endgame(piece, square);
+		phase += PieceSquareTables.PHASE_WEIGHTS[typeOf(piece)];
+		if (accumulator != null){ accumulator.add(piece, square); }
+		checkInfoValid = false;
+	}
+
+	/**
+	 * Removes the piece on the square.
+	 * @param square
+	 * @return The piece code that was removed, or EMPTY.
+	 */
+	public int remove(int square){
+		int piece = squares[square];
+		if (piece != EMPTY){
+			long b = ~(1L << square);
+			pieces[piece] &= b;
+			colors[colorOf(piece)] &= b;
+			occupied &= b;
+			squares[square] = EMPTY;
+			key ^= Zobrist.PIECES[piece][square];
+			if (typeOf(piece) == PAWN){ pawnKey ^= Zobrist.PIECES[piece][square]; }
+			middlegameScore -= PieceSquareTables.middlegame(piece, square);
+			endgameScore -= PieceSquareTables.endgame(piece, square);
+			phase -= PieceSquareTables.PHASE_WEIGHTS[typeOf(piece)];
+			if (accumulator != null){ accumulator.remove(piece, square); }
+			checkInfoValid = false;
+		}
+		return piece;
+	}
+
+
+	/**
+	 * Makes a move. Strikes en passant and moves the rook if a king is castling, promotes pawns, updates castling
+	 * rights, en passant square and the halfmove clock, and gives the turn to the other color.
+	 * A pawn reaching the last row without a promotion type in the move stays a pawn. ChessBoard.movePiece() leaves it
+	 * there as a pawn; only core.ChessAI replaces its own pawns afterwards, with ChessBoard.setPiece().
+	 * Nothing is allocated, and the move can be taken back with {@link core.Position#unmakeMove(long) unmakeMove}.
+	 * @param move See {@link core.Move}
+	 * @return Undo information to give to unmakeMove().
+	 */
+	public long makeMove(int move){
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = squares[from];
+		int color = colorOf(piece);
+		int type = typeOf(piece);
+
+		if (accumulator != null){ accumulator.push(); }
+		int captureSquare = to;
+		if (type == PAWN && to == epSquare && color == sideToMove){
+			captureSquare = enPassantVictim(from, to);
+		}
+		int captured = remove(captureSquare);
+		long undo = (move & Move.MASK) | ((long) (captured + 1) << 20) | ((long) castling << 24) | ((long) (epSquare + 1) << 28)
+				| ((long) sideToMove << 35) | ((long) halfmoveClock << 36);
+
+		remove(from);
+		put(Move.promotion(move) != 0 ? piece(color, Move.promotion(move)) : piece, to);
+
+		/* Castling. Moves the rook as well */
+		if (type == KING && Math.abs(to - from) == 2){
+			int rookFrom = to > from ? from + 3 : from - 4;
+			if (squares[rookFrom] == piece(color, ROOK)){
+				remove(rookFrom);
+				put(piece(color, ROOK), to > from ? to - 1 : to + 1);
+				undo |= CASTLED;
+			}
+		}
+
+		key ^= stateKey();
+		castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		epSquare = NO_SQUARE;
+		if (type == PAWN && Math.abs(to - from) == 16){
+			int skipped = (from + to) >>> 1;
+			if ((Bitboards.pawnAttacks(color, skipped) & pieces[piece(color ^ 1, PAWN)]) != 0){
+				epSquare = skipped;
+			}
+		}
+		halfmoveClock = (captured != EMPTY || type == PAWN) ? 0 : halfmoveClock + 1;
+		sideToMove = color ^ 1;
+		key ^= stateKey();
+		return undo;
+	}
+
+	/**
+	 * Takes back a move made with {@link core.Position#makeMove(int) makeMove}. Moves must be taken back in the
+	 * opposite order of how they were made.
+	 * @param undo The value returned by makeMove().
+	 */
+	public void unmakeMove(long undo){
+		/* The accumulator goes back to its values from before the move, rather than being told about the pieces */
+		Accumulator acc = accumulator;
+		accumulator = null;
+
+		int move = (int) undo & Move.MASK;
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = remove(to);
+		int color = colorOf(piece);
+		if (Move.promotion(move) != 0){
+			piece = piece(color, PAWN);
+		}
+		put(piece, from);
+
+		if ((undo & CASTLED) != 0){
+			remove(to > from ? to - 1 : to + 1);
+			put(piece(color, ROOK), to > from ? from + 3 : from - 4);
+		}
+
+		key ^= stateKey();
+		castling = (int) (undo >>> 24) & 15;
+		epSquare = ((int) (undo >>> 28) & 127) - 1;
+		sideToMove = (int) (undo >>> 35) & 1;
+		key ^= stateKey();
+		halfmoveClock = (int) (undo >>> 36) & 0xffff;
+		int captured = ((int) (undo >>> 20) & 15) - 1;
+		if (captured != EMPTY){
+			put(captured, (typeOf(piece) == PAWN && to == epSquare) ? enPassantVictim(from, to) : to);
+		}
+		accumulator = acc;
+		if (acc != null){ acc.pop(); }
+	}
+
+	/**
+	 * Gives the turn to the other color without moving anything. Not a legal move, but the search uses it to find
+	 * out if a position is so good that even a free move for the opponent doesn't spoil it.
+	 * The halfmove clock is reset, so that positions before the null move don't count as repetitions.
+	 * @return Undo information to give to unmakeNullMove().
+	 */
+	public long makeNullMove(){
+		long undo = ((long) (epSquare + 1) << 28) | ((long) halfmoveClock << 36);
+		key ^= stateKey();
+		epSquare = NO_SQUARE;
+		sideToMove ^= 1;
+		key ^= stateKey();
+		halfmoveClock = 0;
+		return undo;
+	}
+
+	/**
+	 * Takes back a move made with {@link core.Position#makeNullMove() makeNullMove}.
+	 * @param undo The value returned by makeNullMove().
+	 */
+	public void unmakeNullMove(long undo){
+		key ^= stateKey();
+		epSquare = ((int) (undo >>> 28) & 127) - 1;
+		sideToMove ^= 1;
+		key ^= stateKey();
+		halfmoveClock = (int) (undo >>> 36) & 0xffff;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return The square of the pawn that is struck by an en passant move.
+	 */
+	private static int enPassantVictim(int from, int to){
+		return (from & ~7) | (to & 7);
+	}
+
+
+	/**
+	 * Finds the squares attacked by a piece standing on the given square.
+	 * @param piece Piece code
+	 * @param square
+	 * @param occupied The occupancy to use for sliding pieces
+	 * @return Bitboard of the attacked squares.
+	 */
+	public static long attacks(int piece, int square, long occupied){
+		switch (typeOf(piece)){
+		case PAWN:
+			return Bitboards.pawnAttacks(colorOf(piece), square);
+		case KNIGHT:
+			return Bitboards.knightAttacks(square);
+		case BISHOP:
+			return Bitboards.bishopAttacks(square, occupied);
+		case ROOK:
+			return Bitboards.rookAttacks(square, occupied);
+		case QUEEN:
+			return Bitboards.bishopAttacks(square, occupied) | Bitboards.rookAttacks(square, occupied);
+		default:
+			return Bitboards.kingAttacks(square);
+		}
+	}
+
+
+	/**
+	 * @param square
+	 * @param byColor
+	 * @return True if a piece of the given color attacks the square.
+	 */
+	public boolean isSquareAttacked(int square, int byColor){
+		return isSquareAttacked(square, byColor, occupied);
+	}
+
+	/**
+	 * Checks if a square is attacked by looking from the square itself: a knight on the square would attack the
+	 * enemy knights that attack it, and so on for every type of piece.
+	 * @param square
+	 * @param byColor
+	 * @param occupied The occupancy to use for sliding pieces. Used to look through a king that is moving.
+	 * @return True if a piece of the given color attacks the square.
+	 */
+	public boolean isSquareAttacked(int square, int byColor, long occupied){
+		int offset = byColor * 6;
+		return (Bitboards.pawnAttacks(byColor ^ 1, square) & pieces[offset + PAWN]) != 0
+				|| (Bitboards.knightAttacks(square) & pieces[offset + KNIGHT]) != 0
+				|| (Bitboards.kingAttacks(square) & pieces[offset + KING]) != 0
+				|| (Bitboards.bishopAttacks(square, occupied) & (pieces[offset + BISHOP] | pieces[offset + QUEEN])) != 0
+				|| (Bitboards.rookAttacks(square, occupied) & (pieces[offset + ROOK] | pieces[offset + QUEEN])) != 0;
+	}
+
+	/**
+	 * @param square
+	 * @param occupied
+	 * @return Bitboard of all pieces, of both colors, that attack the square.
+	 */
+	public long attackersTo(int square, long occupied){
+		return (Bitboards.pawnAttacks(WHITE, square) & pieces[piece(BLACK, PAWN)])
+				| (Bitboards.pawnAttacks(BLACK, square) & pieces[piece(WHITE, PAWN)])
+				| (Bitboards.knightAttacks(square) & (pieces[piece(BLACK, KNIGHT)] | pieces[piece(WHITE, KNIGHT)]))
+				| (Bitboards.kingAttacks(square) & (pieces[piece(BLACK, KING)] | pieces[piece(WHITE, KING)]))
+				| (Bitboards.bishopAttacks(square, occupied) & (pieces[piece(BLACK, BISHOP)] | pieces[piece(WHITE, BISHOP)]
+						| pieces[piece(BLACK, QUEEN)] | pieces[piece(WHITE, QUEEN)]))
+				| (Bitboards.rookAttacks(square, occupied) & (pieces[piece(BLACK, ROOK)] | pieces[piece(WHITE, ROOK)]
+						| pieces[piece(BLACK, QUEEN)] | pieces[piece(WHITE, QUEEN)]));
+	}
+
+	/**
+	 * @param color
+	 * @return Bitboard of the enemy pieces giving check to the king of the given color.
+	 */
+	public long getCheckers(int color){
+		updateCheckInfo(color);
+		return checkers;
+	}
+
+	/**
+	 * @param color
+	 * @return Bitboard of the pieces of the given color that are pinned to their king.
+	 */
+	public long getPinned(int color){
+		updateCheckInfo(color);
+		return pinned;
+	}
+
+	/**
+	 * Finds the pieces giving check to the king of the given color, the pieces pinned to it, and the squares a
+	 * piece other than the king must move to in order to get out of check. Nothing is done if this is already
+	 * known for the color and no piece has been moved since.
+	 * @param color
+	 */
+	private void updateCheckInfo(int color){
+		if (checkInfoValid && checkInfoColor == color){ return; }
+		checkInfoValid = true;
+		checkInfoColor = color;
+		checkInfoKing = kingSquare(color);
+		checkers = 0;
+		pinned = 0;
+		evasionMask = ~0L;
+		if (checkInfoKing == NO_SQUARE){ return; }
+
+		int enemy = color ^ 1;
+		checkers = attackersTo(checkInfoKing, occupied) & colors[enemy];
+		if (checkers != 0){
+			/* Single check: capture the checker or block it. Double check: only the king can move. */
+			evasionMask = (checkers & (checkers - 1)) == 0
+					? checkers | Bitboards.between(checkInfoKing, Bitboards.firstSquare(checkers))
+					: 0;
+		}
+
+		/* Enemy sliding pieces that would attack the king on an empty board. If exactly one piece stands between,
+		 * and it is one of ours, it is pinned. */
+		long snipers = (Bitboards.rookAttacks(checkInfoKing, 0) & (pieces[piece(enemy, ROOK)] | pieces[piece(enemy, QUEEN)]))
+				| (Bitboards.bishopAttacks(checkInfoKing, 0) & (pieces[piece(enemy, BISHOP)] | pieces[piece(enemy, QUEEN)]));
+		for (; snipers != 0; snipers &= snipers - 1){
+			long blockers = Bitboards.between(checkInfoKing, Bitboards.firstSquare(snipers)) & occupied;
+			if (blockers != 0 && (blockers & (blockers - 1)) == 0){
+				pinned |= blockers & colors[color];
+			}
+		}
+	}
+
+	/**
+	 * @param color
+	 * @return True if the king of the given color is in check.
+	 */
+	public boolean isInCheck(int color){
+		int king = kingSquare(color);
+		return king != NO_SQUARE && isSquareAttacked(king, color ^ 1);
+	}
+
+
+	/**
+	 * Finds the squares the piece on the given square can move to without breaking the rules.
+	 * @param from
+	 * @return Bitboard of the legal destination squares.
+	 */
+	public long legalTargets(int from){
+		int piece = squares[from];
+		if (piece == EMPTY){ return 0; }
+		int color = colorOf(piece);
+		long legal = 0;
+
+		/* The king can go to any square that is not attacked. It is taken off the board, so that it doesn't hide the
+		 * squares behind it from sliding pieces. */
+		if (typeOf(piece) == KING){
+			long withoutKing = occupied & ~Bitboards.bit(from);
+			for (long b = pseudoTargets(from); b != 0; b &= b - 1){
+				int to = Bitboards.firstSquare(b);
+				if (!isSquareAttacked(to, color ^ 1, withoutKing)){
+					legal |= Bitboards.bit(to);
+				}
+			}
+			return legal | castlingTargets(color);
+		}
+
+		/* Other pieces must get the king out of check, and pinned pieces can only move along the pin */
+		updateCheckInfo(color);
+		if (evasionMask == 0){ return 0; }
+		long targets = pseudoTargets(from);
+		if (typeOf(piece) == PAWN && epSquare != NO_SQUARE && (targets & Bitboards.bit(epSquare)) != 0){
+			targets &= ~Bitboards.bit(epSquare);
+			if (isLegalEnPassant(from, color)){
+				legal |= Bitboards.bit(epSquare);
+			}
+		}
+		legal |= targets & evasionMask;
+		if ((pinned & Bitboards.bit(from)) != 0){
+			legal &= Bitboards.line(checkInfoKing, from);
+		}
+		return legal;
+	}
+
+	/**
+	 * Gives every legal move of a color to the sink, piece by piece in square order. The check and pin information
+	 * is found once and shared by all the pieces, and in double check only the king is looked at.
+	 * @param color
+	 * @param sink
+	 * @return False if the sink stopped the generation.
+	 */
+	public boolean generateAllMoves(int color, MoveSink sink){
+		updateCheckInfo(color);
+		long movers = evasionMask == 0 ? pieces[piece(color, KING)] : colors[color];
+		for (; movers != 0; movers &= movers - 1){
+			if (!generateMoves(Bitboards.firstSquare(movers), sink)){ return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the legal captures and promotions of a color to the sink, like generateAllMoves() but without the quiet
+	 * moves. Used at the end of the search, where only moves that change the material are looked at.
+	 * @param color
+	 * @param sink
+	 * @return False if the sink stopped the generation.
+	 */
+	public boolean generateCaptures(int color, MoveSink sink){
+		updateCheckInfo(color);
+		long movers = evasionMask == 0 ? pieces[piece(color, KING)] : colors[color];
+		long enemies = colors[color ^ 1];
+		long pawnTargets = enemies | PROMOTION_ROWS | (epSquare != NO_SQUARE ? Bitboards.bit(epSquare) : 0);
+		for (; movers != 0; movers &= movers - 1){
+			int from = Bitboards.firstSquare(movers);
+			if (!generateMoves(from, typeOf(squares[from]) == PAWN ? pawnTargets : enemies, sink)){ return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the legal moves of the piece on the given square to the sink, with flags. A pawn reaching the last row
+	 * gives one move for each type it can be promoted to, queen first.
+	 * @param from
+	 * @param sink
+	 * @return False if the sink stopped the generation.
+	 */
+	public boolean generateMoves(int from, MoveSink sink){
+		return generateMoves(from, ~0L, sink);
+	}
+
+	/**
+	 * Same as generateMoves(), but only for the destination squares in the mask.
+	 * @param from
+	 * @param mask Bitboard of the squares to give moves to
+	 * @param sink
+	 * @return False if the sink stopped the generation.
+	 */
+	private boolean generateMoves(int from, long mask, MoveSink sink){
+		int piece = squares[from];
+		int type = typeOf(piece);
+		for (long targets = legalTargets(from) & mask; targets != 0; targets &= targets - 1){
+			int to = Bitboards.firstSquare(targets);
+			int flags = squares[to] != EMPTY ? Move.CAPTURE : 0;
+			if (type == PAWN){
+				if (squares[to] == EMPTY && Bitboards.getX(to) != Bitboards.getX(from)){
+					flags |= Move.CAPTURE | Move.EN_PASSANT;
+				}else if (Math.abs(to - from) == 16){
+					flags |= Move.DOUBLE_PUSH;
+				}
+				if (Bitboards.getY(to) == 0 || Bitboards.getY(to) == 7){
+					for (int promotion = QUEEN; promotion >= KNIGHT; promotion--){
+						if (!sink.accept(Move.create(from, to, promotion, flags))){ return false; }
+					}
+					continue;
+				}
+			}else if (type == KING && Math.abs(to - from) == 2){
+				flags |= Move.CASTLING;
+			}
+			if (!sink.accept(Move.create(from, to, 0, flags))){ return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * En passant removes two pieces from a row at once, which can uncover an attack on the king that the pin
+	 * information doesn't see. The sliding attacks on the king are looked up again with the occupancy after the
+	 * move, and the remaining checkers must be the struck pawn or sliding pieces that are now blocked.
+	 * The check information must be up to date for the color.
+	 * @param from
+	 * @param color
+	 * @return True if the pawn on the square can strike en passant without leaving the king in check.
+	 */
+	private boolean isLegalEnPassant(int from, int color){
+		if (checkInfoKing == NO_SQUARE){ return true; }
+		int enemy = color ^ 1;
+		long victim = Bitboards.bit(enPassantVictim(from, epSquare));
+		long after = (occupied ^ Bitboards.bit(from) ^ victim) | Bitboards.bit(epSquare);
+		long leapers = checkers & ~victim & (pieces[piece(enemy, PAWN)] | pieces[piece(enemy, KNIGHT)]);
+		return leapers == 0
+				&& (Bitboards.rookAttacks(checkInfoKing, after) & (pieces[piece(enemy, ROOK)] | pieces[piece(enemy, QUEEN)])) == 0
+				&& (Bitboards.bishopAttacks(checkInfoKing, after) & (pieces[piece(enemy, BISHOP)] | pieces[piece(enemy, QUEEN)])) == 0;
+	}
+
+	/**
+	 * Finds the squares the piece can move to, without checking if the own king is left in check.
+	 * Castling moves are not included.
+	 * @param from
+	 * @return Bitboard of the destination squares.
+	 */
+	private long pseudoTargets(int from){
+		int piece = squares[from];
+		int color = colorOf(piece);
+		if (typeOf(piece) != PAWN){
+			return attacks(piece, from, occupied) & ~colors[color];
+		}
+
+		/* Pawns strike diagonally (also en passant), and move forward onto empty squares */
+		long enemies = colors[color ^ 1];
+		if (epSquare != NO_SQUARE && color == sideToMove){
+			enemies |= Bitboards.bit(epSquare);
+		}
+		long ret = Bitboards.pawnAttacks(color, from) & enemies;
+		long push = Bitboards.pawnPushes(color, from) & ~occupied;
+		if (push != 0){
+			ret |= push | (Bitboards.pawnDoublePushes(color, from) & ~occupied);
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds the castling moves the king of the given color can make. The king can not castle out of, through or
+	 * into check, and the squares between the king and the rook must be empty.
+	 * @param color
+	 * @return Bitboard of the squares the king can move to by castling.
+	 */
+	private long castlingTargets(int color){
+		int rights = castling & (color == BLACK ? (BLACK_SHORT | BLACK_LONG) : (WHITE_SHORT | WHITE_LONG));
+		int king = KING_HOME[color];
+		if (rights == 0 || squares[king] != piece(color, KING) || isSquareAttacked(king, color ^ 1)){ return 0; }
+		long ret = 0;
+		if ((rights & (BLACK_SHORT | WHITE_SHORT)) != 0 && squares[king + 3] == piece(color, ROOK)
+				&& squares[king + 1] == EMPTY && squares[king + 2] == EMPTY
+				&& !isSquareAttacked(king + 1, color ^ 1) && !isSquareAttacked(king + 2, color ^ 1)){
+			ret |= Bitboards.bit(king + 2);
+		}
+		if ((rights & (BLACK_LONG | WHITE_LONG)) != 0 && squares[king - 4] == piece(color, ROOK)
+				&& squares[king - 1] == EMPTY && squares[king - 2] == EMPTY && squares[king - 3] == EMPTY
+				&& !isSquareAttacked(king - 1, color ^ 1) && !isSquareAttacked(king - 2, color ^ 1)){
+			ret |= Bitboards.bit(king - 2);
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks if a move would leave the own king in check. The move is made and taken back.
+	 * Castling is not handled here. Used for moves that are not generated by legalTargets().
+	 * @param from
+	 * @param to
+	 * @return True if the king of the moving piece is in check after the move.
+	 */
+	public boolean leavesKingInCheck(int from, int to){
+		int color = colorOf(squares[from]);
+		long undo = makeMove(Move.create(from, to));
+		int king = kingSquare(color);
+		boolean check = king != NO_SQUARE && isSquareAttacked(king, color ^ 1);
+		unmakeMove(undo);
+		return check;
+	}
+
+	/**
+	 * @param color
+	 * @return True if the given color has at least one legal move.
+	 */
+	public boolean hasLegalMove(int color){
+		return !generateAllMoves(color, FIRST_MOVE);
+	}
+
+	/**
+	 * Static exchange evaluation: plays out all the captures on the destination square of the move, each side always
+	 * capturing with its least valuable piece, and either side free to stop capturing when it would lose by going
+	 * on. Sliding pieces behind the capturing pieces (x-rays) join in as the pieces in front of them are used.
+	 * Pins and checks are not looked at.
+	 * @param move A legal move in this position
+	 * @return The material the side making the move wins, in centipawns. Negative if it loses material.
+	 */
+	public int see(int move){
+		if (Move.isCastling(move)){ return 0; }
+		int from = Move.from(move);
+		int to = Move.to(move);
+		if (swapList == null){ swapList = new int[32]; }
+		int[] gain = swapList;
+		gain[0] = captureValue(move);
+		int attackerValue = Move.promotion(move) != 0 ? SEE_VALUES[Move.promotion(move)] : SEE_VALUES[typeOf(squares[from])];
+		long occ = exchangeOccupancy(move);
+		long attackers = attackersTo(to, occ) & occ;
+		int color = colorOf(squares[from]) ^ 1;
+		int d = 0;
+		for (long mine; (mine = attackers & colors[color]) != 0; color ^= 1){
+			int type = leastValuable(mine, color);
+			d++;
+			gain[d] = attackerValue - gain[d - 1]; //what the side capturing has won if the exchange stops here
+			occ ^= Bitboards.bit(Bitboards.firstSquare(mine & pieces[piece(color, type)]));
+			attackers = (attackers | xrayAttackers(to, type, occ)) & occ;
+			attackerValue = SEE_VALUES[type];
+		}
+
+		/* Each side stops if capturing would leave it worse off than not capturing */
+		for (; d > 0; d--){
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+		}
+		return gain[0];
+	}
+
+	/**
+	 * Finds out if the static exchange evaluation of a move reaches a threshold, faster than see(): the exchange is
+	 * stopped as soon as one side is sure of the result.
+	 * @param move A legal move in this position
+	 * @param threshold In centipawns
+	 * @return True if see(move) >= threshold.
+	 */
+	public boolean seeGreaterOrEqual(int move, int threshold){
+		if (Move.isCastling(move)){ return 0 >= threshold; }
+		int from = Move.from(move);
+		int to = Move.to(move);
+
+		/* The balance is what the side making the move has won beyond the threshold, if the exchange stops here */
+		int balance = captureValue(move) - threshold;
+		if (balance < 0){ return false; }
+		balance -= Move.promotion(move) != 0 ? SEE_VALUES[Move.promotion(move)] : SEE_VALUES[typeOf(squares[from])];
+		if (balance >= 0){ return true; }
+
+		/* The sides take turns capturing, and the balance is flipped to the view of the side that captured. The first
+		 * side to be ahead even if its capturing piece is lost has won the exchange */
+		long occ = exchangeOccupancy(move);
+		long attackers = attackersTo(to, occ) & occ;
+		int mover = colorOf(squares[from]);
+		int color = mover ^ 1;
+		for (long mine; (mine = attackers & colors[color]) != 0; ){
+			int type = leastValuable(mine, color);
+			occ ^= Bitboards.bit(Bitboards.firstSquare(mine & pieces[piece(color, type)]));
+			attackers = (attackers | xrayAttackers(to, type, occ)) & occ;
+			color ^= 1;
+			balance = -balance - 1 - SEE_VALUES[type];
+			if (balance >= 0){ break; }
+		}
+
+		/* The side to capture next is the one that lost */
+		return color != mover;
+	}
+
+	/**
+	 * @param move
+	 * @return The value of the piece the move captures, and of the promotion, in centipawns.
+	 */
+	private int captureValue(int move){
+		int ret = 0;
+		if (Move.isEnPassant(move)){
+			ret = SEE_VALUES[PAWN];
+		}else if (squares[Move.to(move)] != EMPTY){
+			ret = SEE_VALUES[typeOf(squares[Move.to(move)])];
+		}
+		if (Move.promotion(move) != 0){
+			ret += SEE_VALUES[Move.promotion(move)] - SEE_VALUES[PAWN];
+		}
+		return ret;
+	}
+
+	/**
+	 * @param move
+	 * @return The occupancy after the move, for finding the pieces that take part in the exchange that follows.
+	 */
+	private long exchangeOccupancy(int move){
+		long ret = (occupied ^ Bitboards.bit(Move.from(move))) | Bitboards.bit(Move.to(move));
+		if (Move.isEnPassant(move)){
+			ret ^= Bitboards.bit(enPassantVictim(Move.from(move), Move.to(move)));
+		}
+		return ret;
+	}
+
+	/**
+	 * @param attackers Bitboard of pieces of the color
+	 * @param color
+	 * @return The type of the least valuable of the pieces.
+	 */
+	private int leastValuable(long attackers, int color){
+		int type = PAWN;
+		while ((attackers & pieces[piece(color, type)]) == 0){ type++; }
+		return type;
+	}
+
+	/**
+	 * Finds the sliding pieces that can attack the square after a piece of the given type has left the line to it.
+	 * Only the lines the piece could attack along are looked at.
+	 * @param square
+	 * @param type The type of the piece that left
+	 * @param occupied The occupancy after the piece left
+	 * @return Bitboard of sliding pieces of both colors attacking the square.
+	 */
+	private long xrayAttackers(int square, int type, long occupied){
+		long ret = 0;
+		long queens = pieces[piece(BLACK, QUEEN)] | pieces[piece(WHITE, QUEEN)];
+		if (type == PAWN || type == BISHOP || type == QUEEN){
+			ret |= Bitboards.bishopAttacks(square, occupied) & (pieces[piece(BLACK, BISHOP)] | pieces[piece(WHITE, BISHOP)] | queens);
+		}
+		if (type == ROOK || type == QUEEN){
+			ret |= Bitboards.rookAttacks(square, occupied) & (pieces[piece(BLACK, ROOK)] | pieces[piece(WHITE, ROOK)] | queens);
+		}
+		return ret;
+	}
+}
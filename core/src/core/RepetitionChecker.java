@@ -33,43 +33,37 @@
 
 package core;
 
-import java.util.ArrayList;
-
-import core.ChessBoard.Memento;
-
 /**
+ * Keeps the Zobrist keys of the positions in a game, and checks for threefold repetition.
+ * Only positions since the last capture or pawn move can be repeated, so only that part of the history is searched.
  * @author Darknight
  *
  */
 public class RepetitionChecker {
-	ArrayList<Memento> boards = new ArrayList<Memento>();
+	/* Ring of keys, one per move. Must be a power of two, and larger than the 100 moves of the fifty-move rule. */
+	private static final int HISTORY_SIZE = 256;
+	private final long[] keys = new long[HISTORY_SIZE];
+	private int size = 0;
 
 	
 	/**
-	 * Method that checks for repeating patterns in the gameplay.
+	 * Method that checks for repeating patterns in the gameplay. Must be called once after every move.
 	 * @param lastBoard A reference to the board in play.
-	 * @return true if board seems to be repetive
+	 * @return true if the position on the board has occurred three times
 	 */
 	public boolean checkForRepetition(ChessBoard lastBoard){
-		int boardsToCompare = 8;
-		boards.add(lastBoard.saveToMemento());
-		if (boards.size() < boardsToCompare){ return false; }
-		int index = boards.size() - 1;
+		Position position = lastBoard.getPosition();
+		long key = position.getKey();
+		keys[size & (HISTORY_SIZE - 1)] = key;
+		size++;
 		
-		ArrayList<ChessBoard> compareList = new ArrayList<ChessBoard>();
-		for (int i=0; i < boardsToCompare; i++){
-			compareList.add(new ChessBoard(0));
-			compareList.get(i).restoreFromMemento(boards.get(index--));
-		}
-		
-		/* Time to compare the boards. */
-		if (boardsToCompare == 8){
-			if ((compareList.get(7).toString().equals(compareList.get(3).toString())) 
-				&& (compareList.get(6).toString().equals(compareList.get(2).toString()))
-				&& (compareList.get(5).toString().equals(compareList.get(1).toString()))
-				&& (compareList.get(4).toString().equals(compareList.get(0).toString()))){
-					return true;
-				}
+		/* Looks back to the last irreversible move, only at positions with the same color to move. */
+		int reversibleMoves = Math.min(position.getHalfmoveClock(), Math.min(size - 1, HISTORY_SIZE - 1));
+		int found = 1;
+		for (int back = 2; back <= reversibleMoves; back += 2){
+			if (keys[(size - 1 - back) & (HISTORY_SIZE - 1)] == key && ++found == 3){
+				return true;
+			}
 		}
 		return false;
 	}
@@ -79,6 +73,8 @@ public class RepetitionChecker {
 	 * Help method for GUI-undo functionality
 	 */
 	public void removeLastEntry(){
-		boards.remove(boards.size() -1 );
+		if (size > 0){
+			size--;
+		}
 	}
 }
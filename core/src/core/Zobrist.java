@@ -0,0 +1,84 @@
+/*
+ * Zobrist.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core;
+
+/**
+ * Random numbers for Zobrist hashing. The key of a position is the XOR of the numbers for each piece on its
+ * square, the castling rights, the en passant file and the side to move. A move only changes a few of them, so the
+ * Position can keep its key up to date without looking at the whole board.
+ * The numbers are generated from a fixed seed, so keys are the same every time the program runs.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+final class Zobrist {
+	static final long[][] PIECES = new long[12][64];
+	static final long[] CASTLING = new long[16];
+	static final long[] EN_PASSANT = new long[8];
+	static final long BLACK_TO_MOVE;
+
+	private static long seed = 0x2545F4914F6CDD1DL;
+
+	static {
+		for (long[] piece : PIECES){
+			for (int sq = 0; sq < 64; sq++){
+				piece[sq] = next();
+			}
+		}
+		long[] rights = {next(), next(), next(), next()};
+		for (int i = 0; i < CASTLING.length; i++){ //One number per right, combined for each set of rights.
+			for (int r = 0; r < rights.length; r++){
+				if ((i & (1 << r)) != 0){
+					CASTLING[i] ^= rights[r];
+				}
+			}
+		}
+		for (int x = 0; x < EN_PASSANT.length; x++){
+			EN_PASSANT[x] = next();
+		}
+		BLACK_TO_MOVE = next();
+	}
+
+	private Zobrist(){}
+
+	/**
+	 * xorshift64* pseudo random number generator.
+	 * @return The next random number
+	 */
+	private static long next(){
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Accumulator.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import core.Position;
+
+/**
+ * The feature layer of an NnueNetwork for one position, one array of hidden values for each color. A Position with
+ * an accumulator tells it about every piece that is put or removed, so that making or taking back a move only adds or
+ * subtracts the weights of the few features that changed.
+ *
+ * The features of a color depend on the square of its king. When the king moves, the accumulator of that color is
+ * marked as out of date, and computed again from the whole board by refresh() before the next evaluation.
+ *
+ * The values are kept on a stack with one level per move made. Making a move copies the values to a new level, and
+ * taking the move back just goes back to the level before, so taking back a king move doesn't need a refresh. The
+ * stack wraps around after LEVELS moves that are not taken back; taking back more moves than are kept leaves the
+ * accumulator out of date.
+ *
+ * The loops over the hidden values are kept simple, so that the JIT compiler can turn them into SIMD instructions.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class Accumulator {
+	/* Levels of the stack. A power of two, above SearchEngine.MAX_PLY */
+	private static final int LEVELS = 128;
+
+	private final NnueNetwork network;
+	private final short[][][] levels; //indexed by level and color
+	private final int[][] levelKings = new int[LEVELS][2]; //the king squares the values were computed for
+	private final boolean[][] levelValid = new boolean[LEVELS][2];
+
+	/* The current level, and the lowest one that is still kept. Indexes are taken modulo LEVELS */
+	private int top;
+	private int bottom;
+
+	/* The arrays of the current level */
+	private short[][] values;
+	private int[] kings;
+	private boolean[] valid;
+
+	private long refreshes;
+
+	/**
+	 * Creates an accumulator that is out of date for both colors.
+	 * @param network
+	 */
+	public Accumulator(NnueNetwork network){
+		this.network = network;
+		levels = new short[LEVELS][2][network.hidden];
+		select();
+	}
+
+	/**
+	 * @return The network the accumulator is for.
+	 */
+	public NnueNetwork getNetwork(){
+		return network;
+	}
+
+	/**
+	 * @return How many times the values of a color have been computed from the whole board.
+	 */
+	public long getRefreshes(){
+		return refreshes;
+	}
+
+	/**
+	 * @param color
+	 * @return The hidden values seen from the color. Only up to date after refresh().
+	 */
+	short[] getValues(int color){
+		return values[color];
+	}
+
+	/**
+	 * Called when a piece is put on a square.
+	 * @param piece
+	 * @param square
+	 */
+	public void add(int piece, int square){
+		if (Position.typeOf(piece) == Position.KING){
+			valid[Position.colorOf(piece)] = false;
+			return;
+		}
+		for (int color = 0; color < 2; color++){
+			if (valid[color]){
+				add(values[color], NnueNetwork.feature(color, kings[color], piece, square));
+			}
+		}
+	}
+
+	/**
+	 * Called when a piece is removed from a square.
+	 * @param piece
+	 * @param square
+	 */
+	public void remove(int piece, int square){
+		if (Position.typeOf(piece) == Position.KING){
+			valid[Position.colorOf(piece)] = false;
+			return;
+		}
+		for (int color = 0; color < 2; color++){
+			if (valid[color]){
+				subtract(values[color], NnueNetwork.feature(color, kings[color], piece, square));
+			}
+		}
+	}
+
+	/**
+	 * Called before a move is made: the values are copied to a new level, which the move updates.
+	 */
+	public void push(){
+		short[][] from = values;
+		boolean[] fromValid = valid;
+		int[] fromKings = kings;
+		top++;
+		if (top - bottom >= LEVELS){ bottom++; }
+		select();
+		for (int color = 0; color < 2; color++){
+			valid[color] = fromValid[color];
+			kings[color] = fromKings[color];
+			if (valid[color]){
+				System.arraycopy(from[color], 0, values[color], 0, values[color].length);
+			}
+		}
+	}
+
+	/**
+	 * Called when a move is taken back, instead of telling about its pieces: goes back to the values from before the
+	 * move.
+	 */
+	public void pop(){
+		if (top == bottom){
+			top--;
+			select();
+			invalidate();
+		}else{
+			top--;
+			select();
+		}
+	}
+
+	private void select(){
+		int level = top & (LEVELS - 1);
+		values = levels[level];
+		kings = levelKings[level];
+		valid = levelValid[level];
+	}
+
+	/**
+	 * Marks the accumulator as out of date for both colors, as when the whole board has changed. The levels of the
+	 * moves before are forgotten as well.
+	 */
+	public void invalidate(){
+		bottom = top;
+		valid[Position.BLACK] = false;
+		valid[Position.WHITE] = false;
+	}
+
+	/**
+	 * Computes the values of the colors that are out of date from the pieces of the position.
+	 * A color without a king only gets the biases.
+	 * @param position
+	 */
+	public void refresh(Position position){
+		for (int color = 0; color < 2; color++){
+			if (valid[color]){ continue; }
+			refreshes++;
+			short[] acc = values[color];
+			System.arraycopy(network.featureBiases, 0, acc, 0, acc.length);
+			int king = position.kingSquare(color);
+			if (king == Position.NO_SQUARE){ continue; }
+			for (int piece = 0; piece < 12; piece++){
+				if (Position.typeOf(piece) == Position.KING){ continue; }
+				for (long b = position.getPieces(Position.colorOf(piece), Position.typeOf(piece)); b != 0; b &= b - 1){
+					add(acc, NnueNetwork.feature(color, king, piece, Long.numberOfTrailingZeros(b)));
+				}
+			}
+			kings[color] = king;
+			valid[color] = true;
+		}
+	}
+
+	private void add(short[] acc, int feature){
+		short[] weights = network.featureWeights;
+		int offset = feature * acc.length;
+		for (int i = 0; i < acc.length; i++){
+			acc[i] += weights[offset + i];
+		}
+	}
+
+	private void subtract(short[] acc, int feature){
+		short[] weights = network.featureWeights;
+		int offset = feature * acc.length;
+		for (int i = 0; i < acc.length; i++){
+			acc[i] -= weights[offset + i];
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * EvalCache.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import java.util.Arrays;
+
+import core.Position;
+import core.search.Evaluator;
+
+/**
+ * Remembers the scores of evaluated positions, in front of another Evaluator. The same positions are evaluated again
+ * and again, in each iteration of the search and by each thread, and a lookup is much cheaper than an evaluation.
+ *
+ * Each entry is one long: the upper 48 bits of the Zobrist key of the position, and the score in the lower 16 bits.
+ * The key and the score are written together, so the table can be shared by several search threads without locks.
+ * A position whose score doesn't fit in 16 bits is evaluated every time.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class EvalCache implements Evaluator {
+	public static final int DEFAULT_MB = 4;
+
+	private static final long SCORE_MASK = 0xFFFFL;
+
+	private final Evaluator evaluator;
+	private final long[] table;
+	private final int mask;
+
+	/* Statistics. Updated without synchronization, so they are approximate when threads share the cache */
+	private long probes;
+	private long hits;
+	private long collisions;
+
+	/**
+	 * @param evaluator The evaluator to cache the scores of
+	 * @param megabytes The size of the cache. Rounded down to a power of two number of entries, at most 1 GB.
+	 * @throws IllegalArgumentException if the size is less than 1 MB.
+	 */
+	public EvalCache(Evaluator evaluator, int megabytes) throws IllegalArgumentException {
+		if (megabytes < 1){
+			throw new IllegalArgumentException("The cache must be at least 1 MB: " + megabytes);
+		}
+		int entries = Integer.highestOneBit(Math.min(megabytes, 1024)) * (1 << 17); //8 bytes each
+		this.evaluator = evaluator;
+		table = new long[entries];
+		mask = entries - 1;
+	}
+
+	/**
+	 * Creates a cache of DEFAULT_MB megabytes.
+	 * @param evaluator The evaluator to cache the scores of
+	 */
+	public EvalCache(Evaluator evaluator){
+		this(evaluator, DEFAULT_MB);
+	}
+
+	public int evaluate(Position position){
+		long key = position.getKey();
+		int index = (int) key & mask;
+		long entry = table[index];
+		probes++;
+		if (entry != 0){
+			if ((entry & ~SCORE_MASK) == (key & ~SCORE_MASK)){
+				hits++;
+				return (short) entry;
+			}
+			collisions++;
+		}
+		int score = evaluator.evaluate(position);
+		if (score == (short) score){
+			table[index] = (key & ~SCORE_MASK) | (score & SCORE_MASK);
+		}
+		return score;
+	}
+
+	/**
+	 * Empties the cache and resets the statistics.
+	 */
+	public void clear(){
+		Arrays.fill(table, 0);
+		probes = 0;
+		hits = 0;
+		collisions = 0;
+	}
+
+	/**
+	 * @return The evaluator whose scores are cached
+	 */
+	public Evaluator getEvaluator(){
+		return evaluator;
+	}
+
+	/**
+	 * @return The share of evaluations answered from the cache, between 0 and 1.
+	 */
+	public double getHitRate(){
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	/**
+	 * @return The number of evaluations since the cache was created or cleared.
+	 */
+	public long getProbes(){
+		return probes;
+	}
+
+	/**
+	 * @return The number of evaluations answered from the cache.
+	 */
+	public long getHits(){
+		return hits;
+	}
+
+	/**
+	 * @return The number of evaluations that found the entry taken by another position, and replaced it.
+	 */
+	public long getCollisions(){
+		return collisions;
+	}
+
+	/**
+	 * @return The number of entries in the cache.
+	 */
+	public int getSize(){
+		return table.length;
+	}
+}
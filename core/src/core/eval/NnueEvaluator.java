@@ -0,0 +1,91 @@
+/*
+ * NnueEvaluator.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import java.io.File;
+import java.io.IOException;
+
+import core.Position;
+import core.search.Evaluator;
+
+/**
+ * Scores a position with an efficiently updatable neural network (NNUE), see {@link core.eval.NnueNetwork}. Slower
+ * than the TaperedEvaluator per position, but it can learn much more about a position than hand written terms.
+ *
+ * The first time a position is evaluated it gets an Accumulator, which the position then keeps up to date as moves
+ * are made and taken back. Each search thread has its own position, so one evaluator can be shared by the threads of
+ * a parallel search.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class NnueEvaluator implements Evaluator {
+	/* Scores are kept well away from the mate scores of the search */
+	public static final int MAX_SCORE = 10000;
+
+	private final NnueNetwork network;
+
+	/**
+	 * @param network
+	 */
+	public NnueEvaluator(NnueNetwork network){
+		this.network = network;
+	}
+
+	/**
+	 * @param file A network file
+	 * @throws IOException if the file can not be read, or is not a network.
+	 */
+	public NnueEvaluator(File file) throws IOException {
+		this(NnueNetwork.load(file));
+	}
+
+	public int evaluate(Position position){
+		Accumulator acc = position.getAccumulator();
+		if (acc == null || acc.getNetwork() != network){
+			acc = new Accumulator(network);
+			position.setAccumulator(acc);
+		}
+		acc.refresh(position);
+		int us = position.getSideToMove();
+		int score = network.output(acc.getValues(us), acc.getValues(1 - us));
+		return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+	}
+
+	/**
+	 * @return The network the positions are scored with.
+	 */
+	public NnueNetwork getNetwork(){
+		return network;
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * NnueNetwork.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import core.Position;
+
+/**
+ * The weights of an efficiently updatable neural network, see {@link core.eval.NnueEvaluator}.
+ *
+ * The inputs are HalfKP features, seen from each color: one feature is set for each piece other than the kings,
+ * given by the square of the color's own king, the type of the piece, whether it is the color's own piece, and its
+ * square. Black sees the board flipped vertically, so both colors see their own pieces on the lower rows. Each color
+ * has its own accumulator: the sum of the feature layer weights of the set features, and the biases.
+ *
+ * The output is the sum of the clipped accumulators times the output weights, side to move first, and the output
+ * bias. The weights are quantized: an activation of 1.0 is ACTIVATION_MAX in the feature layer, and the output
+ * weights are multiplied by 64, so the output divided by OUTPUT_DIVISOR is the score in centipawns.
+ *
+ * File format, big-endian as written by java.io.DataOutputStream: the int MAGIC, the int VERSION, the int number of
+ * hidden values per color (H), INPUTS * H shorts of feature weights (H per feature), H shorts of feature biases,
+ * 2 * H bytes of output weights and the int output bias.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class NnueNetwork {
+	/* Piece kinds: the five types other than the king, own and other color */
+	public static final int KINDS = 10;
+	public static final int INPUTS = 64 * KINDS * 64;
+
+	public static final int ACTIVATION_MAX = 127;
+	public static final int OUTPUT_DIVISOR = ACTIVATION_MAX * 64;
+
+	public static final int MAGIC = 0x46424E4E; //"FBNN"
+	public static final int VERSION = 1;
+
+	final int hidden;
+	final short[] featureWeights;
+	final short[] featureBiases;
+	final byte[] outputWeights;
+	final int outputBias;
+
+	/**
+	 * @param featureWeights INPUTS rows of H weights
+	 * @param featureBiases H biases, where H is the number of hidden values per color
+	 * @param outputWeights H weights for the side to move, then H for the other side
+	 * @param outputBias
+	 * @throws IllegalArgumentException if the arrays don't fit together.
+	 */
+	public NnueNetwork(short[] featureWeights, short[] featureBiases, byte[] outputWeights, int outputBias)
+			throws IllegalArgumentException {
+		hidden = featureBiases.length;
+		if (hidden < 1 || featureWeights.length != INPUTS * hidden || outputWeights.length != 2 * hidden){
+			throw new IllegalArgumentException("Wrong number of weights for " + hidden + " hidden values");
+		}
+		this.featureWeights = featureWeights;
+		this.featureBiases = featureBiases;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+	}
+
+	/**
+	 * Loads a network from a file.
+	 * @param file
+	 * @return The network
+	 * @throws IOException if the file can not be read, or is not a network.
+	 */
+	public static NnueNetwork load(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return read(in);
+		}finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a network in the file format.
+	 * @param stream
+	 * @return The network
+	 * @throws IOException if the stream can not be read, or doesn't hold a network.
+	 */
+	public static NnueNetwork read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		if (in.readInt() != MAGIC){ throw new IOException("Not a network file"); }
+		int version = in.readInt();
+		if (version != VERSION){ throw new IOException("Unknown network version: " + version); }
+		int hidden = in.readInt();
+		if (hidden < 1 || hidden > (1 << 12)){ throw new IOException("Bad number of hidden values: " + hidden); }
+		short[] featureWeights = readShorts(in, INPUTS * hidden);
+		short[] featureBiases = readShorts(in, hidden);
+		byte[] outputWeights = new byte[2 * hidden];
+		in.readFully(outputWeights);
+		return new NnueNetwork(featureWeights, featureBiases, outputWeights, in.readInt());
+	}
+
+	/**
+	 * Writes the network in the file format.
+	 * @param stream
+	 * @throws IOException
+	 */
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(hidden);
+		writeShorts(out, featureWeights);
+		writeShorts(out, featureBiases);
+		out.write(outputWeights);
+		out.writeInt(outputBias);
+		out.flush();
+	}
+
+	/**
+	 * @return The number of hidden values per color.
+	 */
+	public int getHiddenSize(){
+		return hidden;
+	}
+
+	/**
+	 * @param perspective The color seeing the board
+	 * @param kingSquare The square of the king of that color
+	 * @param piece A piece other than a king
+	 * @param square The square of the piece
+	 * @return The index of the feature.
+	 */
+	public static int feature(int perspective, int kingSquare, int piece, int square){
+		int flip = perspective == Position.WHITE ? 0 : 56;
+		int kind = Position.typeOf(piece) * 2 + (Position.colorOf(piece) == perspective ? 0 : 1);
+		return (((kingSquare ^ flip) * KINDS + kind) << 6) | (square ^ flip);
+	}
+
+	/**
+	 * @param us The accumulator of the side to move
+	 * @param them The accumulator of the other side
+	 * @return The score for the side to move, in centipawns.
+	 */
+	int output(short[] us, short[] them){
+		int sum = 0;
+		for (int i = 0; i < hidden; i++){
+			sum += Math.min(Math.max(us[i], 0), ACTIVATION_MAX) * outputWeights[i];
+		}
+		for (int i = 0; i < hidden; i++){
+			sum += Math.min(Math.max(them[i], 0), ACTIVATION_MAX) * outputWeights[hidden + i];
+		}
+		return (sum + outputBias) / OUTPUT_DIVISOR;
+	}
+
+	private static short[] readShorts(DataInputStream in, int count) throws IOException {
+		byte[] bytes = new byte[count * 2];
+		in.readFully(bytes);
+		short[] ret = new short[count];
+		ByteBuffer.wrap(bytes).asShortBuffer().get(ret);
+		return ret;
+	}
+
+	private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(values.length * 2);
+		bytes.asShortBuffer().put(values);
+		out.write(bytes.array());
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * PawnHashTable.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import core.Position;
+
+/**
+ * Cache of pawn structure evaluations, indexed by the pawn key of the position (see Position.getPawnKey()). The
+ * pawns change much less often than the rest of the position, so most lookups find the position's pawns already
+ * evaluated. Each entry holds the middlegame and endgame scores of PawnStructure, and the pawn shield for a king on
+ * each file of each color.
+ *
+ * The table is direct-mapped: every pawn key has one slot, and a new entry replaces whatever was there. The entries
+ * are kept in primitive arrays. A table must only be used by one thread at a time; TaperedEvaluator keeps one per
+ * thread.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class PawnHashTable {
+	public static final int DEFAULT_ENTRIES = 1 << 14;
+
+	private final long[] keys; //0 is the key of no pawns, which evaluate to all zero, so empty entries are valid
+	private final int[] middlegame;
+	private final int[] endgame;
+	private final byte[] shields; //16 per entry: 8 files for black, then 8 for white
+	private final int mask;
+	private final int[] scratch = new int[2];
+
+	private long probes;
+	private long hits;
+
+	/**
+	 * @param entries The number of entries. Rounded down to a power of two.
+	 * @throws IllegalArgumentException if entries is less than 1.
+	 */
+	public PawnHashTable(int entries) throws IllegalArgumentException {
+		if (entries < 1){
+			throw new IllegalArgumentException("The table must have at least one entry: " + entries);
+		}
+		int size = Integer.highestOneBit(entries);
+		keys = new long[size];
+		middlegame = new int[size];
+		endgame = new int[size];
+		shields = new byte[size * 16];
+		mask = size - 1;
+	}
+
+	/**
+	 * Creates a table with DEFAULT_ENTRIES entries.
+	 */
+	public PawnHashTable(){
+		this(DEFAULT_ENTRIES);
+	}
+
+	/**
+	 * Finds the entry for the pawns of the position. If they are not in the table, they are evaluated and stored.
+	 * @param position
+	 * @return The entry number, for the get methods. Valid until the next probe.
+	 */
+	public int probe(Position position){
+		long key = position.getPawnKey();
+		int index = (int) key & mask;
+		probes++;
+		if (keys[index] == key){
+			hits++;
+			return index;
+		}
+		long white = position.getPieces(Position.WHITE, Position.PAWN);
+		long black = position.getPieces(Position.BLACK, Position.PAWN);
+		PawnStructure.evaluate(white, black, scratch);
+		keys[index] = key;
+		middlegame[index] = scratch[0];
+		endgame[index] = scratch[1];
+		for (int file = 0; file < 8; file++){
+			shields[index * 16 + file] = (byte) PawnStructure.shield(black, Position.BLACK, file);
+			shields[index * 16 + 8 + file] = (byte) PawnStructure.shield(white, Position.WHITE, file);
+		}
+		return index;
+	}
+
+	/**
+	 * @param entry
+	 * @return The middlegame pawn structure score, white minus black.
+	 */
+	public int getMiddlegameScore(int entry){
+		return middlegame[entry];
+	}
+
+	/**
+	 * @param entry
+	 * @return The endgame pawn structure score, white minus black.
+	 */
+	public int getEndgameScore(int entry){
+		return endgame[entry];
+	}
+
+	/**
+	 * @param entry
+	 * @param color
+	 * @param file
+	 * @return The pawn shield bonus for a king of the color on the file, see PawnStructure.shield().
+	 */
+	public int getShield(int entry, int color, int file){
+		return shields[entry * 16 + color * 8 + file];
+	}
+
+	/**
+	 * @return The share of probes that found the pawns already evaluated, from 0 to 1.
+	 */
+	public double getHitRate(){
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	public long getProbes(){
+		return probes;
+	}
+
+	public long getHits(){
+		return hits;
+	}
+
+	public int getSize(){
+		return keys.length;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * PawnStructure.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import java.util.Arrays;
+
+import core.Bitboards;
+import core.Position;
+
+/**
+ * Evaluation of the pawn structure, in centipawns. Only the pawns are looked at, so the results can be kept in a
+ * PawnHashTable and reused as long as no pawn moves.
+ * - Doubled pawns: every pawn more than one on a file is a weakness.
+ * - Isolated pawns: no pawns of the same color on the neighbouring files to protect them.
+ * - Backward pawns: every pawn on the neighbouring files has gone past, and the square in front is guarded by an
+ *   enemy pawn, so the pawn can neither advance nor be protected by a pawn.
+ * - Passed pawns: no enemy pawns in front on the same or the neighbouring files to stop them. Worth more the
+ *   further they have advanced, and much more in the endgame.
+ * - Pawn shield: pawns on the two rows in front of a king on its first rows protect it in the middlegame.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class PawnStructure {
+	/* Middlegame and endgame weights */
+	public static final int DOUBLED_MG = -10;
+	public static final int DOUBLED_EG = -20;
+	public static final int ISOLATED_MG = -10;
+	public static final int ISOLATED_EG = -15;
+	public static final int BACKWARD_MG = -8;
+	public static final int BACKWARD_EG = -10;
+
+	/* Passed pawn bonus by the row, counted from the pawn's own side: 1 is the starting row, 6 the last before promotion */
+	public static final int[] PASSED_MG = {0, 5, 10, 20, 35, 60, 100, 0};
+	public static final int[] PASSED_EG = {0, 10, 20, 40, 70, 120, 200, 0};
+
+	/* Middlegame bonus for each pawn in front of the king, on the row right in front and the one after it */
+	public static final int SHIELD_NEAR = 12;
+	public static final int SHIELD_FAR = 6;
+
+	/* Indexes of the terms counted by terms(). Passed pawns are counted by row, at PASSED + the row */
+	public static final int DOUBLED = 0;
+	public static final int ISOLATED = 1;
+	public static final int BACKWARD = 2;
+	public static final int PASSED = 3;
+	public static final int TERMS = PASSED + 8;
+
+	private static final long FILE_A = 0x0101010101010101L;
+
+	/* Squares in front of a pawn on its own file and on the neighbouring files, indexed by color and square */
+	private static final long[][] FRONT = new long[2][64];
+	private static final long[][] PASSED_SPAN = new long[2][64];
+
+	/* Squares on the neighbouring files level with or behind a pawn, where pawns could still protect it */
+	private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+	static {
+		for (int sq = 0; sq < 64; sq++){
+			int x = Bitboards.getX(sq);
+			int y = Bitboards.getY(sq);
+			for (int ty = 0; ty < 8; ty++){
+				long row = 0xFFL << (ty * 8);
+				long file = row & fileMask(x);
+				long neighbours = row & adjacentFiles(x);
+				if (ty < y){ //white moves towards y = 0
+					FRONT[Position.WHITE][sq] |= file;
+					PASSED_SPAN[Position.WHITE][sq] |= file | neighbours;
+					SUPPORT_SPAN[Position.BLACK][sq] |= neighbours;
+				}else if (ty > y){
+					FRONT[Position.BLACK][sq] |= file;
+					PASSED_SPAN[Position.BLACK][sq] |= file | neighbours;
+					SUPPORT_SPAN[Position.WHITE][sq] |= neighbours;
+				}else{
+					SUPPORT_SPAN[Position.WHITE][sq] |= neighbours;
+					SUPPORT_SPAN[Position.BLACK][sq] |= neighbours;
+				}
+			}
+		}
+	}
+
+	private PawnStructure(){}
+
+	/**
+	 * @param whitePawns
+	 * @param blackPawns
+	 * @param scores Gets the middlegame score at index 0 and the endgame score at index 1, white minus black.
+	 * King safety is not included, see shield().
+	 */
+	public static void evaluate(long whitePawns, long blackPawns, int[] scores){
+		int[] counts = new int[TERMS];
+		terms(whitePawns, blackPawns, counts);
+		scores[0] = DOUBLED_MG * counts[DOUBLED] + ISOLATED_MG * counts[ISOLATED] + BACKWARD_MG * counts[BACKWARD];
+		scores[1] = DOUBLED_EG * counts[DOUBLED] + ISOLATED_EG * counts[ISOLATED] + BACKWARD_EG * counts[BACKWARD];
+		for (int row = 0; row < 8; row++){
+			scores[0] += PASSED_MG[row] * counts[PASSED + row];
+			scores[1] += PASSED_EG[row] * counts[PASSED + row];
+		}
+	}
+
+	/**
+	 * Counts the pawns for each term of the evaluation, so that the weights can be tuned (see core.tuning).
+	 * @param whitePawns
+	 * @param blackPawns
+	 * @param counts Gets the number of white minus black pawns for each term, indexed by DOUBLED, ISOLATED, etc.
+	 */
+	public static void terms(long whitePawns, long blackPawns, int[] counts){
+		Arrays.fill(counts, 0, TERMS, 0);
+		count(Position.WHITE, whitePawns, blackPawns, counts, 1);
+		count(Position.BLACK, blackPawns, whitePawns, counts, -1);
+	}
+
+	/**
+	 * Adds the terms of one color's pawns.
+	 * @param color
+	 * @param own
+	 * @param enemy
+	 * @param counts Counts to add to
+	 * @param sign 1 for white, -1 for black
+	 */
+	private static void count(int color, long own, long enemy, int[] counts, int sign){
+		for (int x = 0; x < 8; x++){
+			int count = Long.bitCount(own & fileMask(x));
+			if (count > 1){
+				counts[DOUBLED] += sign * (count - 1);
+			}
+		}
+		for (long b = own; b != 0; b &= b - 1){
+			int sq = Bitboards.firstSquare(b);
+			int x = Bitboards.getX(sq);
+
+			/* Pawns moved to the last row by the ChessBoard are not promoted (see Position.makeMove()), and have no stop
+			 * square */
+			if ((own & adjacentFiles(x)) == 0){
+				counts[ISOLATED] += sign;
+			}else if ((own & SUPPORT_SPAN[color][sq]) == 0 && relativeRow(color, sq) < 7
+					&& (Bitboards.pawnAttacks(color, stopSquare(color, sq)) & enemy) != 0){
+				counts[BACKWARD] += sign;
+			}
+
+			/* Only the front pawn of doubled pawns counts as passed */
+			if ((enemy & PASSED_SPAN[color][sq]) == 0 && (own & FRONT[color][sq]) == 0){
+				counts[PASSED + relativeRow(color, sq)] += sign;
+			}
+		}
+	}
+
+	/**
+	 * @param pawns The pawns of the king's color
+	 * @param color
+	 * @param file The file of the king
+	 * @return The middlegame bonus for the pawns in front of a king on the file, if it stands on one of its first two
+	 * rows.
+	 */
+	public static int shield(long pawns, int color, int file){
+		return SHIELD_NEAR * shieldPawns(pawns, color, file, 1) + SHIELD_FAR * shieldPawns(pawns, color, file, 2);
+	}
+
+	/**
+	 * @param pawns The pawns of the king's color
+	 * @param color
+	 * @param file The file of the king
+	 * @param row 1 for the row right in front of the first two rows, 2 for the one after it
+	 * @return The number of pawns on the row on the king's file and the neighbouring files.
+	 */
+	public static int shieldPawns(long pawns, int color, int file, int row){
+		long rowMask = 0xFFL << ((color == Position.WHITE ? 7 - row : row) * 8);
+		return Long.bitCount(pawns & (fileMask(file) | adjacentFiles(file)) & rowMask);
+	}
+
+	/**
+	 * @param color
+	 * @param square
+	 * @return The row of the square counted from the color's side, 0 to 7.
+	 */
+	public static int relativeRow(int color, int square){
+		return color == Position.WHITE ? 7 - Bitboards.getY(square) : Bitboards.getY(square);
+	}
+
+	/**
+	 * @param color
+	 * @param square The square of a pawn, not on the last row
+	 * @return The square in front of the pawn.
+	 */
+	private static int stopSquare(int color, int square){
+		return color == Position.WHITE ? square - 8 : square + 8;
+	}
+
+	private static long fileMask(int x){
+		return FILE_A << x;
+	}
+
+	private static long adjacentFiles(int x){
+		return (x > 0 ? FILE_A << (x - 1) : 0) | (x < 7 ? FILE_A << (x + 1) : 0);
+	}
+}
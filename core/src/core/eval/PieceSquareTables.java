@@ -0,0 +1,202 @@
+/*
+ * PieceSquareTables.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import core.Position;
+
+/**
+ * Piece values and piece-square tables for the middlegame and the endgame, in centipawns. The value of a piece
+ * on a square is its material value plus the table entry for the square, and the score of a position blends the
+ * middlegame and endgame sums by how much material is left (the game phase, see TaperedEvaluator).
+ *
+ * The tables are written as seen by white, with the 8th rank on the first line, so that they can be indexed by the
+ * square numbers of the board (y * 8 + x, black at the top). Black pieces use the square mirrored vertically.
+ * The Position keeps the sums up to date as pieces are put and removed, see Position.getMiddlegameScore().
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class PieceSquareTables {
+	/* Material values, indexed by Position.PAWN, KNIGHT, etc. */
+	public static final int[] MIDDLEGAME_VALUES = {82, 337, 365, 477, 1025, 0};
+	public static final int[] ENDGAME_VALUES = {94, 281, 297, 512, 936, 0};
+
+	/* Game phase: the sum of these for the pieces on the board, at most MAX_PHASE. MAX_PHASE is the middlegame, 0 the endgame */
+	public static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+	public static final int MAX_PHASE = 24;
+
+	/* Middlegame and endgame tables, indexed by type and square, from white's view */
+	public static final int[][] MIDDLEGAME = {
+		{ //pawn
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 50,  50,  50,  50,  50,  50,  50,  50,
+			 10,  10,  20,  30,  30,  20,  10,  10,
+			  5,   5,  10,  25,  25,  10,   5,   5,
+			  0,   0,   0,  20,  20,   0,   0,   0,
+			  5,  -5, -10,   0,   0, -10,  -5,   5,
+			  5,  10,  10, -20, -20,  10,  10,   5,
+			  0,   0,   0,   0,   0,   0,   0,   0},
+		{ //knight
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20,   0,   0,   0,   0, -20, -40,
+			-30,   0,  10,  15,  15,  10,   0, -30,
+			-30,   5,  15,  20,  20,  15,   5, -30,
+			-30,   0,  15,  20,  20,  15,   0, -30,
+			-30,   5,  10,  15,  15,  10,   5, -30,
+			-40, -20,   0,   5,   5,   0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50},
+		{ //bishop
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   5,   5,  10,  10,   5,   5, -10,
+			-10,   0,  10,  10,  10,  10,   0, -10,
+			-10,  10,  10,  10,  10,  10,  10, -10,
+			-10,   5,   0,   0,   0,   0,   5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20},
+		{ //rook
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  5,  10,  10,  10,  10,  10,  10,   5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			 -5,   0,   0,   0,   0,   0,   0,  -5,
+			  0,   0,   0,   5,   5,   0,   0,   0},
+		{ //queen
+			-20, -10, -10,  -5,  -5, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			 -5,   0,   5,   5,   5,   5,   0,  -5,
+			  0,   0,   5,   5,   5,   5,   0,  -5,
+			-10,   5,   5,   5,   5,   5,   0, -10,
+			-10,   0,   5,   0,   0,   0,   0, -10,
+			-20, -10, -10,  -5,  -5, -10, -10, -20},
+		{ //king: stay behind the pawns, castled
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			 20,  20,   0,   0,   0,   0,  20,  20,
+			 20,  30,  10,   0,   0,  10,  30,  20}
+	};
+
+	public static final int[][] ENDGAME = {
+		{ //pawn: the further advanced, the closer to promotion
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 90,  90,  90,  90,  90,  90,  90,  90,
+			 60,  60,  60,  60,  60,  60,  60,  60,
+			 35,  35,  35,  35,  35,  35,  35,  35,
+			 20,  20,  20,  20,  20,  20,  20,  20,
+			 10,  10,  10,  10,  10,  10,  10,  10,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0},
+		{ //knight
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20,   0,   0,   0,   0, -20, -40,
+			-30,   0,  10,  15,  15,  10,   0, -30,
+			-30,   5,  15,  20,  20,  15,   5, -30,
+			-30,   0,  15,  20,  20,  15,   0, -30,
+			-30,   5,  10,  15,  15,  10,   5, -30,
+			-40, -20,   0,   5,   5,   0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50},
+		{ //bishop
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   5,  10,  10,  10,  10,   5, -10,
+			-10,   5,  10,  10,  10,  10,   5, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20},
+		{ //rook
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 10,  10,  10,  10,  10,  10,  10,  10,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			  0,   0,   0,   0,   0,   0,   0,   0},
+		{ //queen
+			-20, -10, -10,  -5,  -5, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			 -5,   0,   5,  10,  10,   5,   0,  -5,
+			 -5,   0,   5,  10,  10,   5,   0,  -5,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-20, -10, -10,  -5,  -5, -10, -10, -20},
+		{ //king: come to the center
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10,   0,   0, -10, -20, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -30,   0,   0,   0,   0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50}
+	};
+
+	private PieceSquareTables(){}
+
+	/**
+	 * @param piece Piece code, see Position.piece()
+	 * @param square
+	 * @return The middlegame value of the piece on the square, material included. Positive for white pieces and
+	 * negative for black.
+	 */
+	public static int middlegame(int piece, int square){
+		int type = Position.typeOf(piece);
+		if (Position.colorOf(piece) == Position.WHITE){
+			return MIDDLEGAME_VALUES[type] + MIDDLEGAME[type][square];
+		}
+		return -MIDDLEGAME_VALUES[type] - MIDDLEGAME[type][square ^ 56];
+	}
+
+	/**
+	 * @param piece Piece code, see Position.piece()
+	 * @param square
+	 * @return The endgame value of the piece on the square, material included. Positive for white pieces and
+	 * negative for black.
+	 */
+	public static int endgame(int piece, int square){
+		int type = Position.typeOf(piece);
+		if (Position.colorOf(piece) == Position.WHITE){
+			return ENDGAME_VALUES[type] + ENDGAME[type][square];
+		}
+		return -ENDGAME_VALUES[type] - ENDGAME[type][square ^ 56];
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * TaperedEvaluator.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.eval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import core.Bitboards;
+import core.Position;
+import core.search.Evaluator;
+
+/**
+ * Scores a position by material, piece-square tables and pawn structure, blended between the middlegame and the
+ * endgame values by the game phase: with all the pieces on the board only the middlegame values count, and with only
+ * pawns and kings left only the endgame values. The material and piece-square sums are kept up to date by the
+ * Position itself, and the pawn structure is looked up in a PawnHashTable, so most evaluations cost the same however
+ * many pieces there are.
+ *
+ * Each thread gets its own pawn hash table, so one evaluator can be shared by the threads of a parallel search. The
+ * tables live as long as their threads, so the threads should be kept from one search to the next, as the helper
+ * threads of a SearchEngine are.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class TaperedEvaluator implements Evaluator {
+	private final ThreadLocal<PawnHashTable> pawnTables;
+
+	/* The tables of all the threads, for the statistics. Dropped when their threads are */
+	private final Map<Thread, PawnHashTable> allTables = Collections.synchronizedMap(new WeakHashMap<Thread, PawnHashTable>());
+
+	/**
+	 * @param pawnEntries The number of entries in the pawn hash table of each thread
+	 */
+	public TaperedEvaluator(final int pawnEntries){
+		pawnTables = new ThreadLocal<PawnHashTable>(){
+			protected PawnHashTable initialValue(){
+				PawnHashTable table = new PawnHashTable(pawnEntries);
+				allTables.put(Thread.currentThread(), table);
+				return table;
+			}
+		};
+	}
+
+	/**
+	 * Creates an evaluator with pawn hash tables of the default size.
+	 */
+	public TaperedEvaluator(){
+		this(PawnHashTable.DEFAULT_ENTRIES);
+	}
+
+	public int evaluate(Position position){
+		PawnHashTable pawns = pawnTables.get();
+		int entry = pawns.probe(position);
+		int mg = position.getMiddlegameScore() + pawns.getMiddlegameScore(entry)
+				+ shield(position, pawns, entry, Position.WHITE) - shield(position, pawns, entry, Position.BLACK);
+		int eg = position.getEndgameScore() + pawns.getEndgameScore(entry);
+		int score = taper(mg, eg, position.getPhase());
+		return position.getSideToMove() == Position.WHITE ? score : -score;
+	}
+
+	/**
+	 * @return The pawn hash table of the calling thread.
+	 */
+	public PawnHashTable getPawnHashTable(){
+		return pawnTables.get();
+	}
+
+	/**
+	 * @return The pawn hash tables of all the threads that have used the evaluator and are still alive.
+	 */
+	public List<PawnHashTable> getPawnHashTables(){
+		synchronized (allTables){
+			return new ArrayList<PawnHashTable>(allTables.values());
+		}
+	}
+
+	/**
+	 * @return The share of pawn hash table probes that were hits, over the tables of all the threads.
+	 */
+	public double getPawnHitRate(){
+		long probes = 0;
+		long hits = 0;
+		for (PawnHashTable table : getPawnHashTables()){
+			probes += table.getProbes();
+			hits += table.getHits();
+		}
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	/**
+	 * @param position
+	 * @param pawns
+	 * @param entry The entry of the position's pawns
+	 * @param color
+	 * @return The pawn shield bonus of the king of the color, or 0 if it has left its first two rows.
+	 */
+	private static int shield(Position position, PawnHashTable pawns, int entry, int color){
+		int king = position.kingSquare(color);
+		if (king == Position.NO_SQUARE || PawnStructure.relativeRow(color, king) > 1){ return 0; }
+		return pawns.getShield(entry, color, Bitboards.getX(king));
+	}
+
+	/**
+	 * @param middlegame
+	 * @param endgame
+	 * @param phase The game phase, see PieceSquareTables.PHASE_WEIGHTS
+	 * @return The two scores blended by the phase.
+	 */
+	public static int taper(int middlegame, int endgame, int phase){
+		int mg = Math.min(phase, PieceSquareTables.MAX_PHASE);
+		return (middlegame * mg + endgame * (PieceSquareTables.MAX_PHASE - mg)) / PieceSquareTables.MAX_PHASE;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * EvalCacheTest.java
+ */
+package core.eval.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Position;
+import core.eval.EvalCache;
+import core.eval.TaperedEvaluator;
+import core.search.Evaluator;
+import core.search.SearchEngine;
+
+public class EvalCacheTest {
+
+	/* Counts its evaluations, and returns the given score */
+	private static final class CountingEvaluator implements Evaluator {
+		int score;
+		int calls;
+
+		public int evaluate(Position position){
+			calls++;
+			return score;
+		}
+	}
+
+	@Test
+	public final void testEvaluate() {
+		CountingEvaluator counter = new CountingEvaluator();
+		counter.score = -123;
+		EvalCache cache = new EvalCache(counter, 1);
+		assertEquals(1 << 17, cache.getSize());
+		Position pos = Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+		assertEquals(-123, cache.evaluate(pos));
+		assertEquals(-123, cache.evaluate(pos));
+		assertEquals(1, counter.calls);
+		assertEquals(2, cache.getProbes());
+		assertEquals(1, cache.getHits());
+		assertEquals(0.5, cache.getHitRate(), 0.001);
+
+		/* Another position is evaluated */
+		counter.score = 40;
+		assertEquals(40, cache.evaluate(Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1")));
+		assertEquals(2, counter.calls);
+
+		cache.clear();
+		assertEquals(0, cache.getProbes());
+		assertEquals(40, cache.evaluate(pos));
+		assertEquals(3, counter.calls);
+	}
+
+	@Test
+	public final void testLargeScores() {
+		/* Scores that don't fit in 16 bits are not cached */
+		CountingEvaluator counter = new CountingEvaluator();
+		counter.score = 40000;
+		EvalCache cache = new EvalCache(counter, 1);
+		Position pos = Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+		assertEquals(40000, cache.evaluate(pos));
+		assertEquals(40000, cache.evaluate(pos));
+		assertEquals(2, counter.calls);
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public final void testSearch() {
+		/* The search gives the same result with the cache, and evaluates many positions more than once */
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		EvalCache cache = new EvalCache(new TaperedEvaluator());
+		int cached = new SearchEngine(cache, 4).findBestMove(Position.fromFen(fen));
+		int uncached = new SearchEngine(new TaperedEvaluator(), 4).findBestMove(Position.fromFen(fen));
+		assertEquals(uncached, cached);
+		assertTrue(cache.getHits() > 0);
+		assertTrue(cache.getCollisions() < cache.getProbes() - cache.getHits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testEmptyCache() {
+		new EvalCache(new TaperedEvaluator(), 0);
+	}
+}
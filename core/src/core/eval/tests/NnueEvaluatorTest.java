@@ -0,0 +1,168 @@
+/*
+ * NnueEvaluatorTest.java
+ */
+package core.eval.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import core.Bitboards;
+import core.Move;
+import core.MoveList;
+import core.Position;
+import core.eval.Accumulator;
+import core.eval.NnueEvaluator;
+import core.eval.NnueNetwork;
+import core.search.SearchEngine;
+
+public class NnueEvaluatorTest {
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	/* A network with random weights */
+	private static NnueNetwork randomNetwork(int hidden){
+		Random random = new Random(1);
+		short[] featureWeights = new short[NnueNetwork.INPUTS * hidden];
+		for (int i = 0; i < featureWeights.length; i++){
+			featureWeights[i] = (short) (random.nextInt(41) - 20);
+		}
+		short[] featureBiases = new short[hidden];
+		for (int i = 0; i < hidden; i++){
+			featureBiases[i] = (short) random.nextInt(64);
+		}
+		byte[] outputWeights = new byte[2 * hidden];
+		random.nextBytes(outputWeights);
+		return new NnueNetwork(featureWeights, featureBiases, outputWeights, 1000);
+	}
+
+	@Test
+	public final void testIncrementalUpdate() {
+		/* The accumulator updated by the moves gives the same score as one computed from scratch */
+		NnueEvaluator evaluator = new NnueEvaluator(randomNetwork(32));
+		String[] fens = {KIWIPETE, "4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1"};
+		for (String fen : fens){
+			Position pos = Position.fromFen(fen);
+			int before = evaluator.evaluate(pos);
+			assertNotNull(pos.getAccumulator());
+			MoveList moves = new MoveList();
+			pos.generateAllMoves(pos.getSideToMove(), moves);
+			for (int i = 0; i < moves.size(); i++){
+				long undo = pos.makeMove(moves.get(i));
+				assertEquals(evaluator.evaluate(Position.fromFen(pos.toFen())), evaluator.evaluate(pos));
+				pos.unmakeMove(undo);
+				assertEquals(before, evaluator.evaluate(pos));
+			}
+		}
+	}
+
+	@Test
+	public final void testKingMoves() {
+		/* Only the position after a king move is computed again. Taking the move back goes back to the values before */
+		NnueEvaluator evaluator = new NnueEvaluator(randomNetwork(32));
+		Position pos = Position.fromFen(KIWIPETE);
+		int before = evaluator.evaluate(pos);
+		Accumulator acc = pos.getAccumulator();
+		assertEquals(2, acc.getRefreshes());
+		String[] kingMoves = {"e1d1", "e1f1", "e1g1", "e1c1"};
+		for (String coordinates : kingMoves){
+			int move = Move.NONE;
+			MoveList moves = new MoveList();
+			pos.generateAllMoves(Position.WHITE, moves);
+			for (int i = 0; i < moves.size(); i++){
+				if (Move.toString(moves.get(i)).equals(coordinates)){ move = moves.get(i); }
+			}
+			long undo = pos.makeMove(move);
+			assertEquals(evaluator.evaluate(Position.fromFen(pos.toFen())), evaluator.evaluate(pos));
+			pos.unmakeMove(undo);
+			assertEquals(before, evaluator.evaluate(pos));
+		}
+		assertEquals(2 + kingMoves.length, acc.getRefreshes());
+	}
+
+	@Test
+	public final void testLongGame() {
+		/* More moves than the accumulator keeps levels for: the oldest are computed again when they are taken back */
+		NnueEvaluator evaluator = new NnueEvaluator(randomNetwork(8));
+		Position pos = Position.fromFen(KIWIPETE);
+		int start = evaluator.evaluate(pos);
+		/* Both sides move a knight back and forth: Nb1, Nc8, Nc3, Nb6 */
+		int c3 = Bitboards.square(2, 5), b1 = Bitboards.square(1, 7), b6 = Bitboards.square(1, 2), c8 = Bitboards.square(2, 0);
+		int[] shuffle = {Move.create(c3, b1), Move.create(b6, c8), Move.create(b1, c3), Move.create(c8, b6)};
+		long[] undo = new long[200];
+		for (int i = 0; i < undo.length; i++){
+			undo[i] = pos.makeMove(shuffle[i % shuffle.length]);
+			evaluator.evaluate(pos);
+		}
+		for (int i = undo.length - 1; i >= 0; i--){
+			pos.unmakeMove(undo[i]);
+			assertEquals(evaluator.evaluate(Position.fromFen(pos.toFen())), evaluator.evaluate(pos));
+		}
+		assertEquals(start, evaluator.evaluate(pos));
+	}
+
+	@Test
+	public final void testMirror() {
+		/* Both colors see the board from their own side */
+		NnueEvaluator evaluator = new NnueEvaluator(randomNetwork(16));
+		assertEquals(evaluator.evaluate(Position.fromFen("4k3/8/8/2n5/8/8/4P3/4K3 w - - 0 1")),
+				evaluator.evaluate(Position.fromFen("4k3/4p3/8/8/2N5/8/8/4K3 b - - 0 1")));
+	}
+
+	@Test
+	public final void testCopy() {
+		/* Copying a position over one with an accumulator leaves it out of date, and it is computed again */
+		NnueEvaluator evaluator = new NnueEvaluator(randomNetwork(16));
+		Position pos = Position.fromFen(KIWIPETE);
+		evaluator.evaluate(pos);
+		Accumulator acc = pos.getAccumulator();
+		Position other = Position.fromFen("4k3/8/8/2n5/8/8/4P3/4K3 w - - 0 1");
+		pos.copyFrom(other);
+		assertEquals(evaluator.evaluate(other), evaluator.evaluate(pos));
+		assertSame(acc, pos.getAccumulator());
+	}
+
+	@Test
+	public final void testReadWrite() throws IOException {
+		NnueNetwork network = randomNetwork(8);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		network.write(out);
+		NnueNetwork read = NnueNetwork.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(8, read.getHiddenSize());
+		Position pos = Position.fromFen(KIWIPETE);
+		assertEquals(new NnueEvaluator(network).evaluate(pos), new NnueEvaluator(read).evaluate(new Position(pos)));
+
+		/* Anything else is not a network */
+		byte[] bytes = out.toByteArray();
+		bytes[0]++;
+		try {
+			NnueNetwork.read(new ByteArrayInputStream(bytes));
+			fail("Read a network with the wrong magic number");
+		} catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testWrongSize() {
+		new NnueNetwork(new short[10], new short[8], new byte[16], 0);
+	}
+
+	@Test
+	public final void testSearch() {
+		/* The search keeps the accumulator of its position up to date */
+		int move = new SearchEngine(new NnueEvaluator(randomNetwork(16)), 4).findBestMove(Position.fromFen(KIWIPETE));
+		MoveList moves = new MoveList();
+		Position pos = Position.fromFen(KIWIPETE);
+		pos.generateAllMoves(Position.WHITE, moves);
+		boolean legal = false;
+		for (int i = 0; i < moves.size(); i++){
+			legal |= moves.get(i) == move;
+		}
+		assertTrue(legal);
+	}
+}
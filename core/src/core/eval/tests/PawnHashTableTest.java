@@ -0,0 +1,81 @@
+/*
+ * PawnHashTableTest.java
+ */
+package core.eval.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Bitboards;
+import core.Move;
+import core.Position;
+import core.eval.PawnHashTable;
+import core.eval.PawnStructure;
+import core.eval.TaperedEvaluator;
+import core.search.SearchEngine;
+
+public class PawnHashTableTest {
+
+	@Test
+	public final void testPawnKey() {
+		Position pos = Position.fromFen("4k3/4p3/8/8/8/8/4P3/R3K3 w - - 0 1");
+		long pawnKey = pos.getPawnKey();
+		assertEquals(0, Position.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 0 1").getPawnKey());
+
+		/* Other pieces don't change it, pawns do */
+		long undo = pos.makeMove(Move.create(Bitboards.square(0, 7), Bitboards.square(0, 3)));
+		assertEquals(pawnKey, pos.getPawnKey());
+		pos.unmakeMove(undo);
+		undo = pos.makeMove(Move.create(Bitboards.square(4, 6), Bitboards.square(4, 4), 0, Move.DOUBLE_PUSH));
+		assertFalse(pawnKey == pos.getPawnKey());
+		assertEquals(Position.fromFen(pos.toFen()).getPawnKey(), pos.getPawnKey());
+		pos.unmakeMove(undo);
+		assertEquals(pawnKey, pos.getPawnKey());
+	}
+
+	@Test
+	public final void testProbe() {
+		PawnHashTable table = new PawnHashTable(1000);
+		assertEquals(512, table.getSize());
+		Position pos = Position.fromFen("4k3/5ppp/8/8/8/4P3/4P3/6K1 w - - 0 1");
+		int entry = table.probe(pos);
+		int[] scores = new int[2];
+		PawnStructure.evaluate(pos.getPieces(Position.WHITE, Position.PAWN), pos.getPieces(Position.BLACK, Position.PAWN), scores);
+		assertEquals(scores[0], table.getMiddlegameScore(entry));
+		assertEquals(scores[1], table.getEndgameScore(entry));
+		assertEquals(PawnStructure.shield(pos.getPieces(Position.BLACK, Position.PAWN), Position.BLACK, 6),
+				table.getShield(entry, Position.BLACK, 6));
+		assertEquals(0, table.getHits());
+
+		assertEquals(entry, table.probe(pos));
+		assertEquals(1, table.getHits());
+		assertEquals(0.5, table.getHitRate(), 0.001);
+	}
+
+	@Test
+	public final void testHitRate() {
+		/* Most positions in a search have pawns seen before */
+		TaperedEvaluator evaluator = new TaperedEvaluator();
+		new SearchEngine(evaluator, 5).findBestMove(Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+		assertTrue(evaluator.getPawnHashTable().getHitRate() > 0.9);
+	}
+
+	@Test
+	public final void testHitRateWithThreads() {
+		/* Each search thread keeps its table from one move to the next */
+		TaperedEvaluator evaluator = new TaperedEvaluator();
+		SearchEngine engine = new SearchEngine(evaluator, 5);
+		engine.setThreads(3);
+		for (int move = 0; move < 3; move++){
+			engine.findBestMove(Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+		}
+		assertEquals(3, evaluator.getPawnHashTables().size());
+		assertTrue(evaluator.getPawnHitRate() > 0.9);
+		engine.setThreads(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testEmptyTable() {
+		new PawnHashTable(0);
+	}
+}
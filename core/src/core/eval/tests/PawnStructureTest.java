@@ -0,0 +1,77 @@
+/*
+ * PawnStructureTest.java
+ */
+package core.eval.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Bitboards;
+import core.Position;
+import core.eval.PawnStructure;
+
+public class PawnStructureTest {
+	private final int[] scores = new int[2];
+
+	/**
+	 * @return The middlegame score of the pawns of the position, white minus black.
+	 */
+	private int middlegame(String fen){
+		Position pos = Position.fromFen(fen);
+		PawnStructure.evaluate(pos.getPieces(Position.WHITE, Position.PAWN), pos.getPieces(Position.BLACK, Position.PAWN), scores);
+		return scores[0];
+	}
+
+	@Test
+	public final void testEvaluate() {
+		assertEquals(0, middlegame("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+
+		/* Doubled and isolated on the e-file. The front pawn is passed */
+		assertEquals(PawnStructure.DOUBLED_MG + 2 * PawnStructure.ISOLATED_MG + PawnStructure.PASSED_MG[2],
+				middlegame("4k3/8/8/8/8/4P3/4P3/4K3 w - - 0 1"));
+
+		/* Black's d6 pawn is backward: the e5 pawn has gone past it, and the white c4 pawn guards d5. The e5 pawn is
+		 * passed, and the white pawn isolated */
+		assertEquals(PawnStructure.ISOLATED_MG - PawnStructure.BACKWARD_MG - PawnStructure.PASSED_MG[3],
+				middlegame("4k3/8/3p4/4p3/2P5/8/8/4K3 w - - 0 1"));
+
+		/* Passed pawns are worth more the further they have come, and the colors are mirrored */
+		assertEquals(PawnStructure.PASSED_MG[5] + PawnStructure.ISOLATED_MG, middlegame("4k3/8/4P3/8/8/8/8/4K3 w - - 0 1"));
+		assertEquals(-PawnStructure.PASSED_MG[5] - PawnStructure.ISOLATED_MG, middlegame("4k3/8/8/8/8/4p3/8/4K3 w - - 0 1"));
+	}
+
+	@Test
+	public final void testTerms() {
+		Position pos = Position.fromFen("4k3/8/3p4/4p3/2P5/8/8/4K3 w - - 0 1");
+		int[] counts = new int[PawnStructure.TERMS];
+		PawnStructure.terms(pos.getPieces(Position.WHITE, Position.PAWN), pos.getPieces(Position.BLACK, Position.PAWN), counts);
+		assertEquals(1, counts[PawnStructure.ISOLATED]);
+		assertEquals(-1, counts[PawnStructure.BACKWARD]);
+		assertEquals(-1, counts[PawnStructure.PASSED + 3]);
+		assertEquals(0, counts[PawnStructure.DOUBLED]);
+	}
+
+	@Test
+	public final void testPawnsOnLastRow() {
+		/* ChessBoard.movePiece() doesn't promote, so pawns can be left on the last row */
+		long white = Bitboards.bit(Bitboards.square(0, 0)) | Bitboards.bit(Bitboards.square(1, 0)) | Bitboards.bit(Bitboards.square(3, 6));
+		long black = Bitboards.bit(Bitboards.square(7, 7)) | Bitboards.bit(Bitboards.square(4, 5));
+		int[] counts = new int[PawnStructure.TERMS];
+		PawnStructure.terms(white, black, counts);
+		assertEquals(0, counts[PawnStructure.BACKWARD]);
+		assertEquals(2 - 1, counts[PawnStructure.PASSED + 7]);
+		assertEquals(1 - 2, counts[PawnStructure.ISOLATED]);
+		PawnStructure.evaluate(white, black, scores);
+	}
+
+	@Test
+	public final void testShield() {
+		Position pos = Position.fromFen("4k3/5ppp/6p1/8/8/8/PP6/4K3 w - - 0 1");
+		long black = pos.getPieces(Position.BLACK, Position.PAWN);
+		assertEquals(3 * PawnStructure.SHIELD_NEAR + PawnStructure.SHIELD_FAR, PawnStructure.shield(black, Position.BLACK, 6));
+		assertEquals(2 * PawnStructure.SHIELD_NEAR + PawnStructure.SHIELD_FAR, PawnStructure.shield(black, Position.BLACK, 7));
+		assertEquals(2 * PawnStructure.SHIELD_NEAR, PawnStructure.shield(pos.getPieces(Position.WHITE, Position.PAWN), Position.WHITE, 0));
+		assertEquals(0, PawnStructure.shield(black, Position.BLACK, 2));
+		assertEquals(1, PawnStructure.shieldPawns(black, Position.BLACK, 7, 2));
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * TaperedEvaluatorTest.java
+ */
+package core.eval.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.MoveList;
+import core.Position;
+import core.eval.PawnStructure;
+import core.eval.PieceSquareTables;
+import core.eval.TaperedEvaluator;
+
+public class TaperedEvaluatorTest {
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	@Test
+	public final void testEvaluate() {
+		TaperedEvaluator evaluator = new TaperedEvaluator();
+		Position start = Position.fromFen(START);
+		assertEquals(0, evaluator.evaluate(start));
+		assertEquals(PieceSquareTables.MAX_PHASE, start.getPhase());
+
+		/* Only the endgame values count without pieces. The kings stand on mirrored squares and cancel out, and the
+		 * pawn is passed and isolated */
+		Position pawn = Position.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+		assertEquals(0, pawn.getPhase());
+		int expected = PieceSquareTables.ENDGAME_VALUES[Position.PAWN] + PawnStructure.PASSED_EG[1] + PawnStructure.ISOLATED_EG;
+		assertEquals(expected, evaluator.evaluate(pawn));
+		assertEquals(-expected, evaluator.evaluate(Position.fromFen("4k3/8/8/8/8/8/4P3/4K3 b - - 0 1")));
+
+		/* A knight in the center is worth more than one on the rim */
+		assertTrue(evaluator.evaluate(Position.fromFen("4k3/8/8/3N4/8/8/8/4K3 w - - 0 1"))
+				> evaluator.evaluate(Position.fromFen("4k3/8/8/N7/8/8/8/4K3 w - - 0 1")));
+		assertEquals(100, TaperedEvaluator.taper(100, 100, 30));
+	}
+
+	@Test
+	public final void testKingShield() {
+		TaperedEvaluator evaluator = new TaperedEvaluator();
+
+		/* The same pawns in front of the castled king, and after the king has walked away */
+		int castled = evaluator.evaluate(Position.fromFen("rnbq1rk1/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1RK1 w - - 0 1"));
+		int exposed = evaluator.evaluate(Position.fromFen("rnbq1rk1/pppppppp/8/8/8/4K3/PPPPPPPP/RNBQ1R2 w - - 0 1"));
+		assertTrue(castled - exposed > 3 * PawnStructure.SHIELD_NEAR / 2);
+	}
+
+	@Test
+	public final void testIncrementalUpdate() {
+		String[] fens = {START, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1"};
+		for (String fen : fens){
+			Position pos = Position.fromFen(fen);
+			MoveList moves = new MoveList();
+			pos.generateAllMoves(pos.getSideToMove(), moves);
+			for (int i = 0; i < moves.size(); i++){
+				long undo = pos.makeMove(moves.get(i));
+				assertSums(pos);
+				pos.unmakeMove(undo);
+			}
+			assertEquals(Position.fromFen(fen).getMiddlegameScore(), pos.getMiddlegameScore());
+		}
+	}
+
+	/**
+	 * Checks the sums kept by the position against sums over all the squares.
+	 */
+	private static void assertSums(Position pos){
+		int mg = 0;
+		int eg = 0;
+		int phase = 0;
+		for (int sq = 0; sq < 64; sq++){
+			int piece = pos.getPiece(sq);
+			if (piece == Position.EMPTY){ continue; }
+			mg += PieceSquareTables.middlegame(piece, sq);
+			eg += PieceSquareTables.endgame(piece, sq);
+			phase += PieceSquareTables.PHASE_WEIGHTS[Position.typeOf(piece)];
+		}
+		String fen = pos.toFen();
+		assertEquals(fen, mg, pos.getMiddlegameScore());
+		assertEquals(fen, eg, pos.getEndgameScore());
+		assertEquals(fen, phase, pos.getPhase());
+	}
+}
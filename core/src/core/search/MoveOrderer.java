@@ -0,0 +1,219 @@
+/*
+ * MoveOrderer.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+import core.Move;
+import core.MoveList;
+import core.Position;
+
+import pieces.Bishop;
+import pieces.King;
+import pieces.Knight;
+import pieces.Pawn;
+import pieces.Queen;
+import pieces.Rook;
+
+/**
+ * Decides the order the search tries moves in. Alpha-beta prunes the most when the best move is tried first, so
+ * the moves most likely to be good go first:
+ * 1. The move stored in the transposition table.
+ * 2. Captures and promotions that don't lose material in the exchange that follows (see Position.see()), most
+ *    valuable victim first, and for the same victim the least valuable attacker first (MVV-LVA).
+ * 3. Killer moves: quiet moves that caused a cutoff at the same ply in another line.
+ * 4. Other quiet moves, by how often they have caused cutoffs before (the history heuristic).
+ * 5. Captures that lose material, by MVV-LVA.
+ *
+ * The moves of a list are scored once with score(), and then picked one at a time with next(), so that no time is
+ * spent sorting moves that are never searched because of a cutoff.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class MoveOrderer {
+	/* Piece values, indexed by Position.PAWN, KNIGHT, etc. */
+	private static final int[] VALUES = {Pawn.VALUE, Knight.VALUE, Bishop.VALUE, Rook.VALUE, Queen.VALUE, King.VALUE};
+
+	/* Score ranges of each group. History scores are kept below KILLER, and losing captures are below zero */
+	private static final int HASH = 1 << 30;
+	private static final int CAPTURE = 1 << 29;
+	private static final int LOSING_CAPTURE = -CAPTURE;
+	private static final int KILLER = 1 << 28;
+	private static final int MAX_HISTORY = KILLER - 1;
+
+	private final int[][] killers = new int[SearchEngine.MAX_PLY][2];
+	private final int[][] history = new int[12][64]; //indexed by piece code and destination square
+	private final int[][] scores = new int[SearchEngine.MAX_PLY][MoveList.DEFAULT_CAPACITY];
+
+	/**
+	 * Prepares for a new search. The killer moves are forgotten, and the history is halved, so that it follows
+	 * the new position but doesn't start from nothing.
+	 */
+	public void newSearch(){
+		for (int[] ply : killers){
+			ply[0] = Move.NONE;
+			ply[1] = Move.NONE;
+		}
+		for (int[] piece : history){
+			for (int sq = 0; sq < 64; sq++){
+				piece[sq] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Scores the moves of a list, for picking them with next(). Must be called before the moves are made.
+	 * @param position The position the moves are for
+	 * @param moves
+	 * @param hashMove The move from the transposition table, or Move.NONE
+	 * @param ply Plies from the root. Each ply has its own scores.
+	 */
+	public void score(Position position, MoveList moves, int hashMove, int ply){
+		int[] score = scores[ply];
+		for (int i = 0; i < moves.size(); i++){
+			int move = moves.get(i);
+			if (move == hashMove){
+				score[i] = HASH;
+			}else if (!isQuiet(move)){
+				score[i] = (position.seeGreaterOrEqual(move, 0) ? CAPTURE : LOSING_CAPTURE) + mvvLva(position, move);
+			}else if (move == killers[ply][0]){
+				score[i] = KILLER + 1;
+			}else if (move == killers[ply][1]){
+				score[i] = KILLER;
+			}else{
+				score[i] = history[position.getPiece(Move.from(move))][Move.to(move)];
+			}
+		}
+	}
+
+	/**
+	 * Finds the best scored move from the index on, and swaps it to the index.
+	 * @param moves A list scored with score()
+	 * @param index
+	 * @param ply The ply the list was scored for
+	 * @return The move to search next
+	 */
+	public int next(MoveList moves, int index, int ply){
+		int[] score = scores[ply];
+		int best = index;
+		for (int i = index + 1; i < moves.size(); i++){
+			if (score[i] > score[best]){ best = i; }
+		}
+		if (best != index){
+			int move = moves.get(best);
+			moves.set(best, moves.get(index));
+			moves.set(index, move);
+			int s = score[best];
+			score[best] = score[index];
+			score[index] = s;
+		}
+		return moves.get(index);
+	}
+
+	/**
+	 * Remembers a quiet move that caused a beta cutoff. Captures are not stored; they are ordered well already.
+	 * @param position The position before the move
+	 * @param move
+	 * @param ply
+	 * @param depth The depth that was searched. Deeper cutoffs count more in the history.
+	 */
+	public void addCutoff(Position position, int move, int ply, int depth){
+		if (!isQuiet(move)){ return; }
+		if (killers[ply][0] != move){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int[] piece = history[position.getPiece(Move.from(move))];
+		int to = Move.to(move);
+		piece[to] += depth * depth;
+
+		/* Scale all the history down before it reaches the killer moves */
+		if (piece[to] > MAX_HISTORY){
+			for (int[] p : history){
+				for (int sq = 0; sq < 64; sq++){
+					p[sq] >>= 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param move
+	 * @param ply
+	 * @return True if the move is one of the killer moves of the ply.
+	 */
+	public boolean isKiller(int move, int ply){
+		return move == killers[ply][0] || move == killers[ply][1];
+	}
+
+	/**
+	 * Tells if a move picked with next() was scored as a losing capture, so that the exchange doesn't have to be
+	 * looked at again.
+	 * @param index The index the move was picked to
+	 * @param ply
+	 * @return True if the static exchange of the capture loses material.
+	 */
+	public boolean isLosingCapture(int index, int ply){
+		return scores[ply][index] < 0;
+	}
+
+	/**
+	 * @param position The position before the move
+	 * @param move
+	 * @return The history score of the move. 0 if it has not caused a cutoff lately.
+	 */
+	public int getHistory(Position position, int move){
+		return history[position.getPiece(Move.from(move))][Move.to(move)];
+	}
+
+	/**
+	 * @param move
+	 * @return True if the move is not a capture or a promotion.
+	 */
+	public static boolean isQuiet(int move){
+		return !Move.isCapture(move) && Move.promotion(move) == 0;
+	}
+
+	/**
+	 * @param position
+	 * @param move A capture or promotion
+	 * @return A score for the move: the value won, times 16, minus the value of the attacker.
+	 */
+	private static int mvvLva(Position position, int move){
+		int victim = Move.isEnPassant(move) ? Position.PAWN : Position.typeOf(position.getPiece(Move.to(move)));
+		int gain = Move.isCapture(move) ? VALUES[victim] : 0;
+		if (Move.promotion(move) != 0){
+			gain += VALUES[Move.promotion(move)] - Pawn.VALUE;
+		}
+		return gain * 16 - VALUES[Position.typeOf(position.getPiece(Move.from(move)))];
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * PrincipalVariation.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+import core.Move;
+
+/**
+ * A line found by the search: the moves both sides are expected to play from the searched position, best first,
+ * with the score of the first move and the depth it was searched to. The line can be shorter than the depth, when
+ * the rest of it came from the transposition table.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class PrincipalVariation {
+	private final int[] moves;
+	private final int score;
+	private final int depth;
+
+	/**
+	 * @param moves The moves of the line. The array is copied.
+	 * @param length Number of moves in the array
+	 * @param score The score of the line for the side to move in the searched position
+	 * @param depth
+	 */
+	public PrincipalVariation(int[] moves, int length, int score, int depth){
+		this.moves = new int[length];
+		System.arraycopy(moves, 0, this.moves, 0, length);
+		this.score = score;
+		this.depth = depth;
+	}
+
+	/**
+	 * @return The first move of the line.
+	 */
+	public int getMove(){
+		return moves[0];
+	}
+
+	/**
+	 * @return A copy of the moves of the line.
+	 */
+	public int[] getMoves(){
+		return moves.clone();
+	}
+
+	public int getScore(){
+		return score;
+	}
+
+	public int getDepth(){
+		return depth;
+	}
+
+	/**
+	 * @return The moves in coordinate notation, separated by spaces, as in "e2e4 e7e5".
+	 */
+	public String toString(){
+		StringBuilder ret = new StringBuilder();
+		for (int move : moves){
+			if (ret.length() > 0){ ret.append(' '); }
+			ret.append(Move.toString(move));
+		}
+		return ret.toString();
+	}
+}
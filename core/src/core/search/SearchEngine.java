@@ -0,0 +1,859 @@
+/*
+ * SearchEngine.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+import java.util.Arrays;
+
+import core.Move;
+import core.MoveList;
+import core.Position;
+
+/**
+ * Finds the best move in a position with a negamax search with alpha-beta pruning. The search is repeated one ply
+ * deeper at a time (iterative deepening) until the limits are reached, with the best move so far searched first.
+ * There is always a move to play, even if the search is stopped in the middle of an iteration.
+ * Each iteration starts with a narrow window around the score of the previous one (aspiration window), which is
+ * widened if the score falls outside it. The expected line of play (principal variation) is collected along the
+ * way, and the search can find the best few lines instead of just one (see setMultiPv()).
+ * The position is copied once, and moves are made and taken back on the copy, so the caller's position is never
+ * changed.
+ * Lines that are unlikely to matter are pruned or searched less deep, see SearchOptions.
+ * At the end of the search, captures and promotions are searched until the position is quiet (quiescence
+ * search), so that the Evaluator is not asked to score a position in the middle of an exchange.
+ * Checkmate, stalemate, the fifty-move rule and repetitions are scored by the search itself; the Evaluator only
+ * scores the positions at the end of the search. Results are kept in a TranspositionTable, which lives as long as
+ * the engine, so that positions searched on an earlier turn are remembered.
+ *
+ * The search can run on several threads (Lazy SMP, see setThreads()). Helper threads search the same position on
+ * their own, and only share results through the transposition table. Each finds positions the others need, so the
+ * main thread gets further in the same time. The main thread keeps track of the limits, stops the helpers, and
+ * returns its own result.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class SearchEngine {
+	public static final int INFINITY = 32000;
+
+	/* Score for being checkmated at the root. Being mated n moves later scores MATE - n, so quicker mates are preferred */
+	public static final int MATE = 31000;
+
+	public static final int MAX_PLY = 64;
+	public static final int DEFAULT_DEPTH = 4;
+
+	/* Positions before the root that can still be repeated. The fifty-move rule makes more than 100 pointless */
+	private static final int MAX_HISTORY = 100;
+
+	/* The clock is read once every this many nodes. Must be a power of two */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	/* Captures that can't bring the score up to alpha even with this much to spare are not searched */
+	private static final int DELTA_MARGIN = 200;
+
+	/* Half the width of the first aspiration window, and the first depth to use one at */
+	private static final int ASPIRATION_WINDOW = 25;
+	private static final int ASPIRATION_DEPTH = 4;
+
+	/* Futility and razoring margins, indexed by the depth left. Deeper than the tables, they are not used */
+	private static final int[] FUTILITY_MARGIN = {0, 150, 300, 500};
+	private static final int[] RAZOR_MARGIN = {0, 300, 500};
+
+	/* Depth reduction of a late quiet move, indexed by the depth left and the number of moves searched before it */
+	private static final int[][] REDUCTIONS = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+
+	static {
+		for (int d = 1; d < MAX_PLY; d++){
+			for (int n = 1; n < MoveList.DEFAULT_CAPACITY; n++){
+				REDUCTIONS[d][n] = (int) (0.75 + Math.log(d) * Math.log(n) / 2.25);
+			}
+		}
+	}
+
+	private final Evaluator evaluator;
+	private final TranspositionTable table;
+	private final MoveOrderer orderer = new MoveOrderer();
+	private SearchOptions options = SearchOptions.ALL;
+
+	/* Threads running the helper engines. A helper has none of its own, and a number from 1 up */
+	private HelperThread[] helpers = new HelperThread[0];
+	private final int helperIndex;
+
+	/* Set by stop(), from another thread */
+	private volatile boolean stopRequested;
+
+	private int depth;
+	private int multiPv = 1;
+	private final Position position = new Position();
+	private final MoveList[] moveLists = new MoveList[MAX_PLY];
+
+	/* Keys of the game history followed by the keys along the current line, used to find repetitions */
+	private final long[] keys = new long[MAX_HISTORY + MAX_PLY + 1];
+	private int historySize;
+
+	/* Triangular table of principal variations: the best line found from each ply, starting at pv[ply][ply] */
+	private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+	private final int[] pvLength = new int[MAX_PLY];
+	private PrincipalVariation[] lines = new PrincipalVariation[0];
+
+	private long nodes;
+	private int score;
+	private int completedDepth;
+
+	/* Limits of the running search, as System.nanoTime() values and a node count */
+	private long softDeadline;
+	private long hardDeadline;
+	private long maxNodes;
+	private boolean aborted;
+
+	/**
+	 * @param evaluator Scores the positions at the end of the search
+	 * @param depth Number of plies (half moves) to search
+	 */
+	public SearchEngine(Evaluator evaluator, int depth, TranspositionTable table){
+		this(evaluator, depth, table, 0);
+	}
+
+	/**
+	 * @param evaluator Scores the positions at the end of the search
+	 * @param depth Number of plies (half moves) to search
+	 * @param table
+	 * @param helperIndex 0 for the main engine, else the number of the helper
+	 */
+	private SearchEngine(Evaluator evaluator, int depth, TranspositionTable table, int helperIndex){
+		this.evaluator = evaluator;
+		this.table = table;
+		this.helperIndex = helperIndex;
+		setDepth(depth);
+		for (int i = 0; i < moveLists.length; i++){
+			moveLists[i] = new MoveList();
+		}
+	}
+
+	/**
+	 * Creates an engine with a transposition table of the default size.
+	 * @param evaluator Scores the positions at the end of the search
+	 * @param depth Number of plies (half moves) to search
+	 */
+	public SearchEngine(Evaluator evaluator, int depth){
+		this(evaluator, depth, new TranspositionTable());
+	}
+
+	/**
+	 * Creates an engine for analysing one position at a time with all the processors. An engine playing one of many
+	 * games, such as the one in ChessAI, should search on one thread instead.
+	 * @param evaluator Scores the positions at the end of the search
+	 * @param depth Number of plies (half moves) to search
+	 * @return The engine, with one thread per processor. setThreads(1) ends the helper threads.
+	 */
+	public static SearchEngine forAnalysis(Evaluator evaluator, int depth){
+		SearchEngine engine = new SearchEngine(evaluator, depth);
+		engine.setThreads(Runtime.getRuntime().availableProcessors());
+		return engine;
+	}
+
+	/**
+	 * Creates an engine counting material, searching DEFAULT_DEPTH plies.
+	 */
+	public SearchEngine(){
+		this(new MaterialEvaluator(), DEFAULT_DEPTH);
+	}
+
+	/**
+	 * @param depth Number of plies (half moves) to search. Must be between 1 and MAX_PLY - 1.
+	 */
+	public void setDepth(int depth){
+		if (depth < 1 || depth >= MAX_PLY){
+			throw new IllegalArgumentException("Depth must be between 1 and " + (MAX_PLY - 1) + ": " + depth);
+		}
+		this.depth = depth;
+	}
+
+	public int getDepth(){
+		return depth;
+	}
+
+	public TranspositionTable getTranspositionTable(){
+		return table;
+	}
+
+	/**
+	 * Sets the number of threads to search with. The calling thread is one of them, so 1 means no helper threads.
+	 * The evaluator and the transposition table are shared by all the threads.
+	 * The helper threads are started here and wait between searches, so that they are not started again for every
+	 * move. Setting fewer threads ends the ones that are no longer needed; 1 ends them all.
+	 * Must not be called during a search.
+	 * @param threads
+	 * @throws IllegalArgumentException if threads is less than 1.
+	 */
+	public void setThreads(int threads) throws IllegalArgumentException {
+		if (threads < 1){
+			throw new IllegalArgumentException("There must be at least one thread: " + threads);
+		}
+		HelperThread[] old = helpers;
+		helpers = Arrays.copyOf(old, threads - 1);
+		for (int i = helpers.length; i < old.length; i++){
+			old[i].close();
+		}
+		for (int i = old.length; i < helpers.length; i++){
+			SearchEngine helper = new SearchEngine(evaluator, depth, table, i + 1);
+			helper.setGameHistory(keys, historySize);
+			helper.setOptions(options);
+			helpers[i] = new HelperThread(helper);
+			helpers[i].start();
+		}
+	}
+
+	public int getThreads(){
+		return helpers.length + 1;
+	}
+
+	/**
+	 * Turns the pruning and reduction techniques on or off. All of them are on by default.
+	 * @param options
+	 */
+	public void setOptions(SearchOptions options){
+		this.options = options;
+		for (HelperThread helper : helpers){
+			helper.engine.setOptions(options);
+		}
+	}
+
+	public SearchOptions getOptions(){
+		return options;
+	}
+
+	/**
+	 * Makes the search find the best few moves, each with its own line and score, instead of only the best one.
+	 * Each line after the first costs about as much as the first.
+	 * @param lines The number of lines to find
+	 * @throws IllegalArgumentException if lines is less than 1.
+	 */
+	public void setMultiPv(int lines) throws IllegalArgumentException {
+		if (lines < 1){
+			throw new IllegalArgumentException("There must be at least one line: " + lines);
+		}
+		multiPv = lines;
+	}
+
+	public int getMultiPv(){
+		return multiPv;
+	}
+
+	/**
+	 * Stops a running search as soon as possible. It returns the best move found so far. Can be called from any
+	 * thread.
+	 */
+	public void stop(){
+		stopRequested = true;
+	}
+
+	/**
+	 * Sets the keys of the positions played before the position to search, so that the search can see repetitions
+	 * of them. Only the last 100 are used.
+	 * @param history Zobrist keys, oldest first, not including the position to search.
+	 * @param count Number of keys in the array
+	 */
+	public void setGameHistory(long[] history, int count){
+		historySize = Math.min(count, MAX_HISTORY);
+		System.arraycopy(history, count - historySize, keys, 0, historySize);
+		for (HelperThread helper : helpers){
+			helper.engine.setGameHistory(history, count);
+		}
+	}
+
+	/**
+	 * Searches the position to the depth set for the engine.
+	 * @param root The position to search. It is not changed.
+	 * @return The best move for the side to move, or Move.NONE if it has no legal moves.
+	 */
+	public int findBestMove(Position root){
+		return findBestMove(root, SearchLimits.fixedDepth(depth));
+	}
+
+	/**
+	 * Searches the position one ply deeper at a time, until the maximum depth is reached or one of the limits is
+	 * passed. If the search is stopped in the middle of an iteration, the best move of the last complete iteration
+	 * is kept, unless a better one was already proven in the stopped iteration.
+	 * @param root The position to search. It is not changed.
+	 * @param limits
+	 * @return The best move for the side to move, or Move.NONE if it has no legal moves.
+	 */
+	public int findBestMove(Position root, SearchLimits limits){
+		long start = System.nanoTime();
+		softDeadline = deadline(start, limits.getSoftMillis());
+		hardDeadline = deadline(start, limits.getHardMillis());
+		maxNodes = limits.getMaxNodes();
+		aborted = false;
+		nodes = 0;
+		score = 0;
+		completedDepth = 0;
+		lines = new PrincipalVariation[0];
+		if (helperIndex == 0){ //helpers are started and stopped by the main engine, and must not age the table
+			stopRequested = false;
+			table.newSearch();
+		}
+		orderer.newSearch();
+		position.copyFrom(root);
+		keys[historySize] = position.getKey();
+
+		MoveList moves = moveLists[0];
+		moves.clear();
+		position.generateAllMoves(position.getSideToMove(), moves);
+		if (moves.isEmpty()){ return Move.NONE; }
+
+		/* Helpers vary the search a little, so that they don't all search the same positions in the same order:
+		 * every other helper skips the first depth, and each starts with a different move at the root */
+		if (helperIndex > 0){
+			moveToFront(moves, moves.get(helperIndex % moves.size()));
+		}
+		startHelpers(root, limits.getMaxDepth());
+
+		try {
+			int lineCount = Math.min(helperIndex == 0 ? multiPv : 1, moves.size());
+			for (int d = 1 + helperIndex % 2; d <= limits.getMaxDepth(); d++){
+				PrincipalVariation[] found = new PrincipalVariation[lineCount];
+				for (int line = 0; line < lineCount && !aborted; line++){
+					found[line] = searchLine(d, line);
+				}
+				if (aborted){ break; }
+				lines = found;
+				score = found[0].getScore();
+				completedDepth = d;
+
+				/* A mate within the depth searched won't change with more depth */
+				if (MATE - Math.abs(score) <= d || System.nanoTime() >= softDeadline){ break; }
+			}
+		} finally {
+			stopHelpers();
+		}
+
+		/* The best move is kept at the front of the list, also when a stopped iteration found a better one */
+		return moves.get(0);
+	}
+
+	/**
+	 * Searches for one of the best lines at the root, with an aspiration window around the score the line had in
+	 * the last iteration. The window is widened, more each time, until the score falls inside it.
+	 * The lines before it must already have been found, and their moves are at the front of the move list.
+	 * @param depth
+	 * @param line The number of the line, 0 for the best
+	 * @return The line, or null if the search was stopped.
+	 */
+	private PrincipalVariation searchLine(int depth, int line){
+		int alpha = -INFINITY;
+		int beta = INFINITY;
+		int delta = ASPIRATION_WINDOW;
+		if (depth >= ASPIRATION_DEPTH && line < lines.length && !isMateScore(lines[line].getScore())){
+			alpha = Math.max(lines[line].getScore() - delta, -INFINITY);
+			beta = Math.min(lines[line].getScore() + delta, INFINITY);
+		}
+		while (true){
+			int value = searchRoot(depth, line, alpha, beta);
+			if (aborted){ return null; }
+			if (value <= alpha && alpha > -INFINITY){
+				delta *= 2;
+				alpha = Math.max(value - delta, -INFINITY);
+			}else if (value >= beta && beta < INFINITY){
+				delta *= 2;
+				beta = Math.min(value + delta, INFINITY);
+			}else{
+				if (line == 0){ score = value; }
+				return new PrincipalVariation(pv[0], pvLength[0], value, depth);
+			}
+		}
+	}
+
+	/**
+	 * Starts the helper engines on their threads. They search without limits until stopHelpers() is called, or the
+	 * maximum depth is reached.
+	 * @param root
+	 * @param maxDepth
+	 */
+	private void startHelpers(Position root, int maxDepth){
+		SearchLimits helperLimits = new SearchLimits(maxDepth, SearchLimits.NO_LIMIT, SearchLimits.NO_LIMIT, SearchLimits.NO_LIMIT);
+		for (HelperThread helper : helpers){
+			helper.search(root, helperLimits);
+		}
+	}
+
+	/**
+	 * Stops the helper engines and waits for their searches to end. Their nodes are added to the main engine's.
+	 */
+	private void stopHelpers(){
+		for (HelperThread helper : helpers){
+			helper.engine.stop();
+		}
+		for (HelperThread helper : helpers){
+			helper.await();
+			nodes += helper.engine.nodes;
+		}
+	}
+
+	/**
+	 * Searches the moves at the root, leaving out the moves before the first one, which belong to better lines.
+	 * The best move is moved to the first place, and its line is left in the principal variation table. A move only
+	 * counts if its search was completed.
+	 * @param depth
+	 * @param first The index of the first move to search
+	 * @param alpha
+	 * @param beta
+	 * @return The score of the best move. At most alpha if no move beat alpha, and at least beta if one reached beta.
+	 */
+	private int searchRoot(int depth, int first, int alpha, int beta){
+		MoveList moves = moveLists[0];
+		int best = -INFINITY;
+		int bestIndex = -1;
+		pvLength[0] = 0;
+		for (int i = first; i < moves.size(); i++){
+			int move = moves.get(i);
+			long undo = position.makeMove(move);
+			int value;
+			if (i == first || !options.isPvsEnabled()){
+				value = -negamax(depth - 1, 1, -beta, -alpha, i == first, true);
+			}else{
+				value = -negamax(depth - 1, 1, -alpha - 1, -alpha, false, true);
+				if (value > alpha && value < beta && !aborted){
+					value = -negamax(depth - 1, 1, -beta, -alpha, true, true);
+				}
+			}
+			position.unmakeMove(undo);
+			if (aborted){ break; }
+			if (value > best){ best = value; }
+			if (value > alpha){
+				alpha = value;
+				bestIndex = i;
+				updatePv(0, move);
+				if (alpha >= beta){ break; }
+			}
+		}
+		if (bestIndex >= 0){
+			int move = moves.get(bestIndex);
+			for (int i = bestIndex; i > first; i--){
+				moves.set(i, moves.get(i - 1));
+			}
+			moves.set(first, move);
+		}
+		return best;
+	}
+
+	/**
+	 * Makes the move followed by the best line from the next ply the best line from the ply.
+	 * @param ply
+	 * @param move
+	 */
+	private void updatePv(int ply, int move){
+		pv[ply][ply] = move;
+		int length = pvLength[ply + 1];
+		System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+		pvLength[ply] = length;
+	}
+
+	/**
+	 * Moves a move to the start of the list, keeping the order of the others. Nothing is done if the move is not
+	 * in the list.
+	 * @param moves
+	 * @param move
+	 */
+	private static void moveToFront(MoveList moves, int move){
+		int i = 0;
+		while (i < moves.size() && moves.get(i) != move){ i++; }
+		if (i == moves.size()){ return; }
+		for (; i > 0; i--){
+			moves.set(i, moves.get(i - 1));
+		}
+		moves.set(0, move);
+	}
+
+	/**
+	 * @param start System.nanoTime() at the start of the search
+	 * @param millis
+	 * @return The System.nanoTime() value at the time limit.
+	 */
+	private static long deadline(long start, long millis){
+		return millis >= (Long.MAX_VALUE - start) / 1000000 ? Long.MAX_VALUE : start + millis * 1000000;
+	}
+
+	/**
+	 * @return The score of the best move found by the last search, from the view of the side that moved.
+	 */
+	public int getScore(){
+		return score;
+	}
+
+	/**
+	 * @return The lines found by the last complete iteration of the last search, best first. One unless
+	 * setMultiPv() has been used, and none if the search was stopped during the first iteration or there were no
+	 * legal moves.
+	 */
+	public PrincipalVariation[] getLines(){
+		return lines.clone();
+	}
+
+	/**
+	 * @return The depth of the last complete iteration of the last search.
+	 */
+	public int getCompletedDepth(){
+		return completedDepth;
+	}
+
+	/**
+	 * @return The number of positions visited by the last search, by all threads.
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * @param score
+	 * @return True if the score means that one of the sides can be checkmated.
+	 */
+	public static boolean isMateScore(int score){
+		return Math.abs(score) >= MATE - MAX_PLY;
+	}
+
+	/**
+	 * Negamax with alpha-beta pruning: the score of a position is the negated score of the best reply, and a line
+	 * is cut off as soon as it is shown to be worse than an alternative one of the sides already has.
+	 * @param depth Plies left to search
+	 * @param ply Plies from the root
+	 * @param alpha The score the side to move is already sure of
+	 * @param beta The score the opponent is already sure of, seen from the side to move
+	 * @param pvNode True if the position is on the principal variation: the first move of each position on it, and
+	 * moves searched again because they beat alpha. The others are expected to fail, and can be pruned.
+	 * @param allowNull False right after a null move, so that two are not made in a row
+	 * @return The score of the position for the side to move. Meaningless if the search has been stopped.
+	 */
+	private int negamax(int depth, int ply, int alpha, int beta, boolean pvNode, boolean allowNull){
+		pvLength[ply] = ply;
+		keys[historySize + ply] = position.getKey();
+		if (isDraw(ply)){ return 0; }
+		if (depth == 0){ return quiesce(ply, alpha, beta); }
+		if (checkLimits()){ return 0; }
+		if (ply == MAX_PLY - 1){ return evaluator.evaluate(position); }
+
+		/* A result from the table is used if it was searched deep enough and its bound settles the score here */
+		long key = position.getKey();
+		long entry = table.probe(key);
+		int hashMove = Move.NONE;
+		if (entry != 0){
+			hashMove = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth){
+				int stored = TranspositionTable.fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && stored >= beta)
+						|| (bound == TranspositionTable.UPPER && stored <= alpha)){
+					return stored;
+				}
+			}
+		}
+
+		int color = position.getSideToMove();
+		boolean inCheck = position.isInCheck(color);
+
+		/* Pruning is only done away from the principal variation, and not in check. This doesn't depend on the window,
+		 * so that each technique works with PVS turned off as well */
+		boolean pruning = !pvNode && !inCheck;
+		int staticEval = pruning ? evaluator.evaluate(position) : -INFINITY;
+		if (pruning && !isMateScore(beta)){
+			if (options.isFutilityEnabled() && depth < FUTILITY_MARGIN.length && staticEval - FUTILITY_MARGIN[depth] >= beta){
+				return staticEval;
+			}
+			if (options.isRazoringEnabled() && depth < RAZOR_MARGIN.length && staticEval + RAZOR_MARGIN[depth] <= alpha){
+				int value = quiesce(ply, alpha, beta);
+				if (value <= alpha){ return value; }
+			}
+
+			/* Passing the turn is searched less deep: 2 plies less, 3 when searching deep (adaptive null move) */
+			if (options.isNullMoveEnabled() && allowNull && depth >= 3 && staticEval >= beta && hasPieces(color)){
+				long undo = position.makeNullMove();
+				int value = -negamax(Math.max(0, depth - 1 - (depth > 6 ? 3 : 2)), ply + 1, -beta, -beta + 1, false, false);
+				position.unmakeNullMove(undo);
+				if (aborted){ return 0; }
+				if (value >= beta){ return isMateScore(value) ? beta : value; }
+			}
+		}
+
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		position.generateAllMoves(color, moves);
+		if (moves.isEmpty()){
+			return inCheck ? -MATE + ply : 0;
+		}
+		orderer.score(position, moves, hashMove, ply);
+		boolean futile = pruning && options.isFutilityEnabled() && depth < FUTILITY_MARGIN.length
+				&& staticEval + FUTILITY_MARGIN[depth] <= alpha;
+
+		int originalAlpha = alpha;
+		int bestMove = Move.NONE;
+		for (int i = 0; i < moves.size(); i++){
+			int move = orderer.next(moves, i, ply);
+			boolean quiet = MoveOrderer.isQuiet(move);
+			int reduction = 0;
+			if (options.isLateMoveReductionsEnabled() && quiet && i >= 3 && depth >= 3 && !inCheck){
+				reduction = REDUCTIONS[depth][i];
+				if (orderer.isKiller(move, ply)){ reduction--; }
+				if (orderer.getHistory(position, move) == 0){ reduction++; }
+				reduction = Math.max(0, Math.min(reduction, depth - 2));
+			}
+
+			long undo = position.makeMove(move);
+			boolean givesCheck = position.isInCheck(color ^ 1);
+
+			/* Quiet moves that don't give check can't bring a futile position up to alpha */
+			if (futile && i > 0 && quiet && !givesCheck){
+				position.unmakeMove(undo);
+				continue;
+			}
+			if (givesCheck){ reduction = 0; }
+
+			/* The first move is searched with the full window. With PVS the rest are only tested against alpha, and
+			 * searched again if they beat it. A reduced move that beats alpha is searched again at full depth */
+			int value;
+			if (i == 0){
+				value = -negamax(depth - 1, ply + 1, -beta, -alpha, pvNode, true);
+			}else{
+				int window = options.isPvsEnabled() ? alpha + 1 : beta;
+				value = -negamax(depth - 1 - reduction, ply + 1, -window, -alpha, false, true);
+				if (reduction > 0 && value > alpha && !aborted){
+					value = -negamax(depth - 1, ply + 1, -window, -alpha, false, true);
+				}
+				if (window < beta && value > alpha && value < beta && !aborted){
+					value = -negamax(depth - 1, ply + 1, -beta, -alpha, pvNode, true);
+				}
+			}
+			position.unmakeMove(undo);
+			if (aborted){ return 0; }
+			if (value > alpha){
+				alpha = value;
+				bestMove = move;
+				updatePv(ply, move);
+				if (alpha >= beta){
+					orderer.addCutoff(position, move, ply, depth);
+					break;
+				}
+			}
+		}
+		int bound = alpha >= beta ? TranspositionTable.LOWER : alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(key, bestMove, TranspositionTable.toTable(alpha, ply), depth, bound);
+		return alpha;
+	}
+
+	/**
+	 * @param color
+	 * @return True if the color has other pieces than pawns and the king.
+	 */
+	private boolean hasPieces(int color){
+		for (int type = Position.KNIGHT; type <= Position.QUEEN; type++){
+			if (position.getPieces(color, type) != 0){ return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * Searches captures and promotions only, until none of them are worth making. The side to move doesn't have to
+	 * capture, so the evaluation of the position is a lower bound of the score (stand pat). When in check, all
+	 * moves are searched, since standing pat is not allowed.
+	 * @param ply Plies from the root
+	 * @param alpha
+	 * @param beta
+	 * @return The score of the position for the side to move. Meaningless if the search has been stopped.
+	 */
+	private int quiesce(int ply, int alpha, int beta){
+		pvLength[ply] = ply;
+		if (checkLimits()){ return 0; }
+		if (ply == MAX_PLY - 1){ return evaluator.evaluate(position); }
+
+		int color = position.getSideToMove();
+		boolean inCheck = position.isInCheck(color);
+		int standPat = -INFINITY;
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		if (inCheck){
+			position.generateAllMoves(color, moves);
+			if (moves.isEmpty()){ return -MATE + ply; }
+		}else{
+			standPat = evaluator.evaluate(position);
+			if (standPat >= beta){ return standPat; }
+			if (standPat > alpha){ alpha = standPat; }
+			position.generateCaptures(color, moves);
+		}
+		orderer.score(position, moves, Move.NONE, ply);
+
+		for (int i = 0; i < moves.size(); i++){
+			int move = orderer.next(moves, i, ply);
+
+			/* Delta pruning: skip captures that can't raise the score to alpha, even with a margin. Captures that lose
+			 * material in the exchange are not worth looking at either. The orderer has already found those */
+			if (!inCheck && (standPat + gain(move) + DELTA_MARGIN <= alpha || orderer.isLosingCapture(i, ply))){
+				continue;
+			}
+			long undo = position.makeMove(move);
+			int value = -quiesce(ply + 1, -beta, -alpha);
+			position.unmakeMove(undo);
+			if (aborted){ return 0; }
+			if (value > alpha){
+				alpha = value;
+				if (alpha >= beta){ break; }
+			}
+		}
+		return alpha;
+	}
+
+	/**
+	 * @param move A move in the searched position, not yet made
+	 * @return The material the move wins at once, in centipawns: the captured piece and the promotion.
+	 */
+	private int gain(int move){
+		int ret = 0;
+		if (Move.isEnPassant(move)){
+			ret = MaterialEvaluator.VALUES[Position.PAWN];
+		}else if (Move.isCapture(move)){
+			ret = MaterialEvaluator.VALUES[Position.typeOf(position.getPiece(Move.to(move)))];
+		}
+		if (Move.promotion(move) != 0){
+			ret += MaterialEvaluator.VALUES[Move.promotion(move)] - MaterialEvaluator.VALUES[Position.PAWN];
+		}
+		return ret;
+	}
+
+	/**
+	 * Counts a node, and stops the search if the node limit or the time limit is reached, or stop() has been called.
+	 * The clock and the stop flag are only read every CLOCK_INTERVAL nodes.
+	 * @return True if the search has been stopped.
+	 */
+	private boolean checkLimits(){
+		if (++nodes >= maxNodes || ((nodes & (CLOCK_INTERVAL - 1)) == 0 && (stopRequested || System.nanoTime() >= hardDeadline))){
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	/**
+	 * A position is a draw by the fifty-move rule, or if it has been seen before since the last capture or pawn move.
+	 * A single repetition is enough: if the position was worth playing for, it would not have been repeated.
+	 * @param ply Plies from the root
+	 * @return True if the position is a draw.
+	 */
+	private boolean isDraw(int ply){
+		int halfmoveClock = position.getHalfmoveClock();
+		if (halfmoveClock >= 100){ return true; }
+		int current = historySize + ply;
+		for (int back = 4; back <= halfmoveClock && back <= current; back += 2){
+			if (keys[current - back] == keys[current]){ return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * A thread that runs the searches of one helper engine. It waits between searches, so that the thread and its
+	 * thread-local state, such as the pawn hash table of a TaperedEvaluator, are kept from one search to the next.
+	 */
+	private static final class HelperThread extends Thread {
+		final SearchEngine engine;
+		private Position root; //the position to search next, null when there is none
+		private SearchLimits limits;
+		private boolean searching;
+		private boolean closed;
+
+		HelperThread(SearchEngine engine){
+			super("Search helper " + engine.helperIndex);
+			this.engine = engine;
+			setDaemon(true);
+		}
+
+		/**
+		 * Starts a search. The last one must have ended.
+		 * @param root
+		 * @param limits
+		 */
+		synchronized void search(Position root, SearchLimits limits){
+			engine.stopRequested = false;
+			this.root = root;
+			this.limits = limits;
+			searching = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits for the search to end. Does not stop it, see SearchEngine.stop().
+		 */
+		synchronized void await(){
+			boolean interrupted = false;
+			while (searching){
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true; //the search is about to end, so keep waiting
+				}
+			}
+			if (interrupted){ Thread.currentThread().interrupt(); }
+		}
+
+		/**
+		 * Ends the thread when it is not searching.
+		 */
+		synchronized void close(){
+			closed = true;
+			notifyAll();
+		}
+
+		@Override
+		public void run(){
+			while (true){
+				Position position;
+				SearchLimits searchLimits;
+				synchronized (this){
+					while (root == null && !closed){
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							//only close() ends the thread
+						}
+					}
+					if (closed){ return; }
+					position = root;
+					searchLimits = limits;
+					root = null;
+				}
+				try {
+					engine.findBestMove(position, searchLimits);
+				} finally {
+					synchronized (this){
+						searching = false;
+						notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * SearchLimits.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+/**
+ * Limits for a search: the deepest iteration to search, a soft and a hard time limit, and a limit on the number
+ * of positions visited. No new iteration is started after the soft time limit, and the search is stopped in the
+ * middle of an iteration when the hard time limit or the node limit is reached.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class SearchLimits {
+	public static final long NO_LIMIT = Long.MAX_VALUE;
+
+	private final int maxDepth;
+	private final long softMillis;
+	private final long hardMillis;
+	private final long maxNodes;
+
+	/**
+	 * @param maxDepth The deepest iteration to search, in plies
+	 * @param softMillis No new iteration is started after this many milliseconds. NO_LIMIT for none.
+	 * @param hardMillis The search is stopped after this many milliseconds. NO_LIMIT for none.
+	 * @param maxNodes The search is stopped after visiting this many positions. NO_LIMIT for none.
+	 * @throws IllegalArgumentException if the depth is not between 1 and SearchEngine.MAX_PLY - 1, or a limit is
+	 * negative, or the soft limit is larger than the hard limit.
+	 */
+	public SearchLimits(int maxDepth, long softMillis, long hardMillis, long maxNodes) throws IllegalArgumentException {
+		if (maxDepth < 1 || maxDepth >= SearchEngine.MAX_PLY){
+			throw new IllegalArgumentException("Depth must be between 1 and " + (SearchEngine.MAX_PLY - 1) + ": " + maxDepth);
+		}
+		if (softMillis < 0 || hardMillis < 0 || maxNodes < 0){
+			throw new IllegalArgumentException("Limits can not be negative");
+		}
+		if (softMillis > hardMillis){
+			throw new IllegalArgumentException("The soft time limit can not be larger than the hard time limit");
+		}
+		this.maxDepth = maxDepth;
+		this.softMillis = softMillis;
+		this.hardMillis = hardMillis;
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * @param depth
+	 * @return Limits searching to the given depth, however long it takes.
+	 */
+	public static SearchLimits fixedDepth(int depth){
+		return new SearchLimits(depth, NO_LIMIT, NO_LIMIT, NO_LIMIT);
+	}
+
+	/**
+	 * @param softMillis No new iteration is started after this many milliseconds.
+	 * @param hardMillis The search is stopped after this many milliseconds.
+	 * @return Limits searching as deep as the time allows.
+	 */
+	public static SearchLimits timed(long softMillis, long hardMillis){
+		return new SearchLimits(SearchEngine.MAX_PLY - 1, softMillis, hardMillis, NO_LIMIT);
+	}
+
+	public int getMaxDepth(){
+		return maxDepth;
+	}
+
+	public long getSoftMillis(){
+		return softMillis;
+	}
+
+	public long getHardMillis(){
+		return hardMillis;
+	}
+
+	public long getMaxNodes(){
+		return maxNodes;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * SearchOptions.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+/**
+ * Switches for the techniques that let the search skip or shorten lines that are unlikely to matter. They can be
+ * turned off one by one, to measure what each of them is worth.
+ * - Principal variation search: after the first move, the others are only searched to prove that they are no
+ *   better, with a zero-width window. A move that turns out better is searched again with the full window.
+ * - Null-move pruning: if the side to move is still doing well after passing the turn, searched a few plies less
+ *   deep, the position is cut off. Not used without pieces other than pawns, where passing could be the best move
+ *   (zugzwang).
+ * - Late-move reductions: quiet moves late in the move order are searched less deep, and searched again at full
+ *   depth if they turn out better than expected.
+ * - Futility pruning: near the leaves, quiet moves are skipped if the position is so far below alpha that they
+ *   can't make up for it, and the position is cut off if it is that far above beta.
+ * - Razoring: at the last plies, a position far below alpha is only searched for captures.
+ * Null moves, futility and razoring are only used away from the principal variation, with or without PVS.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class SearchOptions {
+	public static final SearchOptions ALL = new SearchOptions(true, true, true, true, true);
+	public static final SearchOptions NONE = new SearchOptions(false, false, false, false, false);
+
+	private final boolean pvs;
+	private final boolean nullMove;
+	private final boolean lateMoveReductions;
+	private final boolean futility;
+	private final boolean razoring;
+
+	/**
+	 * @param pvs Principal variation search
+	 * @param nullMove Null-move pruning
+	 * @param lateMoveReductions
+	 * @param futility Futility pruning
+	 * @param razoring
+	 */
+	public SearchOptions(boolean pvs, boolean nullMove, boolean lateMoveReductions, boolean futility, boolean razoring){
+		this.pvs = pvs;
+		this.nullMove = nullMove;
+		this.lateMoveReductions = lateMoveReductions;
+		this.futility = futility;
+		this.razoring = razoring;
+	}
+
+	public boolean isPvsEnabled(){
+		return pvs;
+	}
+
+	public boolean isNullMoveEnabled(){
+		return nullMove;
+	}
+
+	public boolean isLateMoveReductionsEnabled(){
+		return lateMoveReductions;
+	}
+
+	public boolean isFutilityEnabled(){
+		return futility;
+	}
+
+	public boolean isRazoringEnabled(){
+		return razoring;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * SharedTranspositionTable.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * One transposition table for the whole program, kept outside the Java heap in direct buffers, so that a large
+ * table doesn't make the garbage collector slower. Its size is set once, with initialize(), before it is first used.
+ * The memory for direct buffers is limited by -XX:MaxDirectMemorySize, which is the maximum heap size by default.
+ *
+ * Every game gets its own TranspositionTable from newGame(), writing to the shared entries. Entries are tagged with
+ * the game and the age of the search in that game, and an entry only gets older when its own game starts a new
+ * search. A game that searches often therefore doesn't push out the entries of a game that searches less often,
+ * just because they are from fewer searches ago.
+ *
+ * A game's table should be closed when the game is over. The entries of closed games count as the oldest of all,
+ * so they are replaced first, and their tag can be given to a new game. A tag is only given out again once every
+ * other free tag has been used, and the new game's ages continue half the age range after the old game's, so entries
+ * the old game left behind still count as old.
+ *
+ * Games that are never closed don't use the tags up: when every tag is taken, a new game gets the tag of the game
+ * that started a search the longest time ago. The old game's entries then count as old ones of the new game, and
+ * the old game takes a tag again in the same way if it searches once more.
+ *
+ * Direct buffers are used rather than the foreign memory API (java.lang.foreign), which needs Java 22, since the
+ * program runs on older Java versions too.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class SharedTranspositionTable {
+	public static final int DEFAULT_MB = 64;
+
+	/* Each direct buffer holds 1 GB */
+	private static final int LONGS_PER_BUFFER = 1 << 27;
+
+	private static SharedTranspositionTable instance;
+
+	private final LongBuffer[] buffers;
+	private final long buckets;
+	private final int[] ages = new int[TranspositionTable.GAMES]; //the current age of each game
+	private final GameTable[] owners = new GameTable[TranspositionTable.GAMES]; //the table using each tag, or null
+	private final long[] lastUsed = new long[TranspositionTable.GAMES]; //when each tag's game last started a search
+	private long clock;
+	private int lastGame;
+
+	/**
+	 * @param megabytes
+	 */
+	private SharedTranspositionTable(int megabytes){
+		buckets = TranspositionTable.buckets(megabytes);
+		long longs = buckets * 8; //four entries of two longs per bucket
+		buffers = new LongBuffer[(int) ((longs + LONGS_PER_BUFFER - 1) / LONGS_PER_BUFFER)];
+		for (int i = 0; i < buffers.length; i++){
+			long size = Math.min(LONGS_PER_BUFFER, longs - (long) i * LONGS_PER_BUFFER);
+			buffers[i] = ByteBuffer.allocateDirect((int) size * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+	}
+
+	/**
+	 * Creates the table. Must be called before the first call to getInstance(), and only once.
+	 * @param megabytes The size of the table. Rounded down to a power of two number of buckets.
+	 * @throws IllegalStateException if the table already exists.
+	 * @throws IllegalArgumentException if the size is less than 1 MB.
+	 */
+	public static synchronized void initialize(int megabytes) throws IllegalStateException, IllegalArgumentException {
+		if (instance != null){
+			throw new IllegalStateException("The shared transposition table has already been created");
+		}
+		if (megabytes < 1){
+			throw new IllegalArgumentException("The table must be at least 1 MB: " + megabytes);
+		}
+		instance = new SharedTranspositionTable(megabytes);
+	}
+
+	/**
+	 * @return The table. It is created with DEFAULT_MB megabytes if initialize() has not been called.
+	 */
+	public static synchronized SharedTranspositionTable getInstance(){
+		if (instance == null){
+			instance = new SharedTranspositionTable(DEFAULT_MB);
+		}
+		return instance;
+	}
+
+	/**
+	 * @return A table for a new game, writing to the shared entries with its own game tag. Should be closed when
+	 * the game is over.
+	 */
+	public synchronized TranspositionTable newGame(){
+		return new GameTable(takeTag());
+	}
+
+	/**
+	 * Finds a tag for a game: the next free one, or the one of the game that started a search the longest time ago.
+	 * The tag's ages are moved on by half the age range, so entries written with it before count as old.
+	 * @return The tag, 1-255. 0 is left for tables that are not shared.
+	 */
+	private int takeTag(){
+		int tag = 0;
+		for (int i = 0; i < TranspositionTable.GAMES - 1 && tag == 0; i++){
+			lastGame = lastGame % (TranspositionTable.GAMES - 1) + 1;
+			if (owners[lastGame] == null){ tag = lastGame; }
+		}
+		if (tag == 0){
+			tag = 1;
+			for (int i = 2; i < TranspositionTable.GAMES; i++){
+				if (lastUsed[i] < lastUsed[tag]){ tag = i; }
+			}
+		}
+		ages[tag] = (ages[tag] + 128) & 255;
+		lastUsed[tag] = ++clock;
+		return tag;
+	}
+
+	/**
+	 * Empties the table for all games.
+	 */
+	public void clear(){
+		for (LongBuffer buffer : buffers){
+			for (int i = 0; i < buffer.capacity(); i++){
+				buffer.put(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * @return The size of the table in bytes.
+	 */
+	public long getSize(){
+		return buckets * 64;
+	}
+
+	private long read(int index){
+		return buffers[index / LONGS_PER_BUFFER].get(index % LONGS_PER_BUFFER);
+	}
+
+	private void write(int index, long value){
+		buffers[index / LONGS_PER_BUFFER].put(index % LONGS_PER_BUFFER, value);
+	}
+
+	/**
+	 * The table one game sees. Reads and writes go to the shared buffers.
+	 */
+	private final class GameTable extends TranspositionTable {
+
+		GameTable(int game){
+			super(buckets, game);
+			setAge(ages[game]);
+			owners[game] = this;
+		}
+
+		/**
+		 * Takes a new tag first if another game has been given this one.
+		 */
+		@Override
+		public void newSearch(){
+			synchronized (SharedTranspositionTable.this){
+				if (owners[getGame()] != this){
+					int game = takeTag();
+					setGame(game);
+					setAge(ages[game]);
+					owners[game] = this;
+				}
+				super.newSearch();
+				ages[getGame()] = getAge();
+				lastUsed[getGame()] = ++clock;
+			}
+		}
+
+		/**
+		 * Only resets the statistics. The entries are shared with other games, and are kept.
+		 */
+		@Override
+		public void clear(){
+			resetStatistics();
+		}
+
+		@Override
+		protected long read(int index){
+			return SharedTranspositionTable.this.read(index);
+		}
+
+		@Override
+		protected void write(int index, long value){
+			SharedTranspositionTable.this.write(index, value);
+		}
+
+		/**
+		 * Gives the game tag up, unless another game has been given it already. Entries of closed games count as
+		 * the oldest.
+		 */
+		@Override
+		public void close(){
+			synchronized (SharedTranspositionTable.this){
+				if (owners[getGame()] == this){
+					owners[getGame()] = null;
+				}
+			}
+		}
+
+		/**
+		 * Entries of other games are aged by the searches of their own game. Entries of closed games are the oldest.
+		 */
+		@Override
+		protected int searchesAgo(long data){
+			int game = game(data);
+			return owners[game] != null ? (ages[game] - age(data)) & 255 : 255;
+		}
+	}
+}
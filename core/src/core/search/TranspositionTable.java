@@ -0,0 +1,352 @@
+/*
+ * TranspositionTable.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.search;
+
+import core.Move;
+
+/**
+ * Remembers the results of searched positions, so that a position reached through another order of moves, or on
+ * the next turn, doesn't have to be searched again. Results are packed into a long (see pack()), and stored with
+ * the Zobrist key of the position in a long array.
+ *
+ * The table can be shared by several search threads without locks. Each entry is two longs: the key XOR the data,
+ * and the data. If two threads write the same entry at once, the key will not match the data, and the entry is
+ * treated as missing.
+ *
+ * Entries are grouped in buckets of four, 64 bytes, the size of a cache line. A new result replaces the entry of
+ * the same position in the bucket, or else an empty one, or else the one searched least deep, where entries from
+ * earlier searches count as less deep.
+ *
+ * The entries are kept in a long array on the heap. Subclasses can keep them elsewhere by overriding read() and
+ * write(), see {@link core.search.SharedTranspositionTable}. Entries are tagged with a game number and the age of the
+ * search in that game, so that games sharing a table only age their own entries.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class TranspositionTable {
+	/* Bound types. The score is exact, or the real score is at most (UPPER) or at least (LOWER) the stored score */
+	public static final int UPPER = 1;
+	public static final int LOWER = 2;
+	public static final int EXACT = 3;
+
+	public static final int DEFAULT_MB = 16;
+
+	private static final int ENTRIES_PER_BUCKET = 4;
+	private static final int LONGS_PER_BUCKET = ENTRIES_PER_BUCKET * 2;
+	private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * 8;
+
+	/* Largest number of buckets that fits in one array, and can be indexed with an int */
+	static final long MAX_BUCKETS = 1L << 27;
+
+	/* Data layout: bit 0-18 move, 19-34 score, 35-42 depth, 43-44 bound, 45-52 age, 53-60 game */
+	private static final int SCORE_SHIFT = 19;
+	private static final int DEPTH_SHIFT = 35;
+	private static final int BOUND_SHIFT = 43;
+	private static final int AGE_SHIFT = 45;
+	private static final int GAME_SHIFT = 53;
+
+	/* Number of game tags */
+	static final int GAMES = 256;
+
+	/* Entries from older searches lose this much depth per search when picking an entry to replace */
+	private static final int AGE_PENALTY = 4;
+
+	private final long[] table; //null if a subclass keeps the entries
+	private final long bucketMask;
+	private int game;
+	private int age;
+
+	/* Statistics. Updated without synchronization, so they are approximate when threads share the table */
+	private long probes;
+	private long hits;
+
+	/**
+	 * @param megabytes The size of the table. Rounded down to a power of two number of buckets, at most 8 GB.
+	 * @throws IllegalArgumentException if the size is less than 1 MB.
+	 */
+	public TranspositionTable(int megabytes) throws IllegalArgumentException {
+		if (megabytes < 1){
+			throw new IllegalArgumentException("The table must be at least 1 MB: " + megabytes);
+		}
+		long buckets = buckets(megabytes);
+		table = new long[(int) buckets * LONGS_PER_BUCKET];
+		bucketMask = buckets - 1;
+		game = 0;
+	}
+
+	/**
+	 * For subclasses that keep the entries themselves.
+	 * @param buckets Number of buckets. Must be a power of two, at most MAX_BUCKETS.
+	 * @param game The game tag of the entries written through this table, 0-255.
+	 */
+	protected TranspositionTable(long buckets, int game){
+		table = null;
+		bucketMask = buckets - 1;
+		this.game = game;
+	}
+
+	/**
+	 * @param megabytes
+	 * @return The number of buckets in a table of the given size.
+	 */
+	static long buckets(int megabytes){
+		return Long.highestOneBit(Math.min(megabytes * (1024L * 1024L) / BYTES_PER_BUCKET, MAX_BUCKETS));
+	}
+
+	/**
+	 * Creates a table of DEFAULT_MB megabytes.
+	 */
+	public TranspositionTable(){
+		this(DEFAULT_MB);
+	}
+
+	/**
+	 * Marks the start of a new search. Entries from earlier searches are kept, but are replaced first.
+	 */
+	public void newSearch(){
+		age = (age + 1) & 255;
+	}
+
+	/**
+	 * @param age The age of the current search, 0-255
+	 */
+	protected void setAge(int age){
+		this.age = age & 255;
+	}
+
+	/**
+	 * @return The age of the current search, 0-255. Counts the calls to newSearch().
+	 */
+	protected int getAge(){
+		return age;
+	}
+
+	/**
+	 * @return The game tag of the entries written through this table.
+	 */
+	protected int getGame(){
+		return game;
+	}
+
+	/**
+	 * @param game The game tag of the entries written from now on, 0-255
+	 */
+	protected void setGame(int game){
+		this.game = game & 255;
+	}
+
+	/**
+	 * Tells the table that the game it is used for is over. A table of its own keeps its entries; a table sharing
+	 * its entries with other games gives them up, see SharedTranspositionTable.
+	 */
+	public void close(){
+	}
+
+	/**
+	 * Empties the table and resets the statistics.
+	 */
+	public void clear(){
+		java.util.Arrays.fill(table, 0);
+		resetStatistics();
+	}
+
+	protected void resetStatistics(){
+		probes = 0;
+		hits = 0;
+	}
+
+	/**
+	 * @param index Index of a long in the table
+	 * @return The long
+	 */
+	protected long read(int index){
+		return table[index];
+	}
+
+	/**
+	 * @param index Index of a long in the table
+	 * @param value
+	 */
+	protected void write(int index, long value){
+		table[index] = value;
+	}
+
+	/**
+	 * @param data An entry in the table
+	 * @return How many searches ago the entry was written, 0-255.
+	 */
+	protected int searchesAgo(long data){
+		return (age - age(data)) & 255;
+	}
+
+	/**
+	 * @param key Zobrist key of the position
+	 * @return The data stored for the position, or 0 if it is not in the table. See move(), score(), depth() and
+	 * bound() for reading it.
+	 */
+	public long probe(long key){
+		probes++;
+		int bucket = (int) (key & bucketMask) * LONGS_PER_BUCKET;
+		for (int i = bucket; i < bucket + LONGS_PER_BUCKET; i += 2){
+			long data = read(i + 1);
+			if ((read(i) ^ data) == key && data != 0){
+				hits++;
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Stores the result of a search.
+	 * @param key Zobrist key of the position
+	 * @param move The best move found, or Move.NONE. If it is NONE, a move already stored for the position is kept.
+	 * @param score Must be between -32768 and 32767. Mate scores should be made relative to the position with toTable().
+	 * @param depth The depth searched, 0-255
+	 * @param bound UPPER, LOWER or EXACT
+	 */
+	public void store(long key, int move, int score, int depth, int bound){
+		int bucket = (int) (key & bucketMask) * LONGS_PER_BUCKET;
+		int replace = bucket;
+		int worst = Integer.MAX_VALUE;
+		for (int i = bucket; i < bucket + LONGS_PER_BUCKET; i += 2){
+			long data = read(i + 1);
+			if (data == 0 || (read(i) ^ data) == key){
+				if (data != 0 && move == Move.NONE){
+					move = move(data);
+				}
+				replace = i;
+				break;
+			}
+			int value = depth(data) - AGE_PENALTY * searchesAgo(data);
+			if (value < worst){
+				worst = value;
+				replace = i;
+			}
+		}
+		long data = pack(move, score, depth, bound, age) | ((long) game << GAME_SHIFT);
+		write(replace + 1, data);
+		write(replace, key ^ data);
+	}
+
+	/**
+	 * @return The share of probes that found the position, from 0 to 1.
+	 */
+	public double getHitRate(){
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	public long getProbes(){
+		return probes;
+	}
+
+	public long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Counts the entries written in the current search, in the first thousand buckets.
+	 * @return The share of the table in use, from 0 to 1.
+	 */
+	public double getOccupancy(){
+		int buckets = (int) Math.min(1000, bucketMask + 1);
+		int used = 0;
+		for (int i = 0; i < buckets * LONGS_PER_BUCKET; i += 2){
+			long data = read(i + 1);
+			if (data != 0 && game(data) == game && age(data) == age){ used++; }
+		}
+		return (double) used / (buckets * ENTRIES_PER_BUCKET);
+	}
+
+	/**
+	 * @return The number of entries the table can hold.
+	 */
+	public long getCapacity(){
+		return (bucketMask + 1) * ENTRIES_PER_BUCKET;
+	}
+
+	static long pack(int move, int score, int depth, int bound, int age){
+		return (move & Move.MASK) | ((long) (score & 0xffff) << SCORE_SHIFT) | ((long) depth << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT) | ((long) age << AGE_SHIFT);
+	}
+
+	public static int move(long data){
+		return (int) data & Move.MASK;
+	}
+
+	public static int score(long data){
+		return (short) (data >>> SCORE_SHIFT);
+	}
+
+	public static int depth(long data){
+		return (int) (data >>> DEPTH_SHIFT) & 255;
+	}
+
+	public static int bound(long data){
+		return (int) (data >>> BOUND_SHIFT) & 3;
+	}
+
+	static int age(long data){
+		return (int) (data >>> AGE_SHIFT) & 255;
+	}
+
+	static int game(long data){
+		return (int) (data >>> GAME_SHIFT) & 255;
+	}
+
+	/**
+	 * Mate scores count plies from the root. In the table they are stored counting from the position itself, so that
+	 * they are right when the position is found at another ply.
+	 * @param score
+	 * @param ply Plies from the root
+	 * @return The score to store
+	 */
+	public static int toTable(int score, int ply){
+		if (score >= SearchEngine.MATE - SearchEngine.MAX_PLY){ return score + ply; }
+		if (score <= -SearchEngine.MATE + SearchEngine.MAX_PLY){ return score - ply; }
+		return score;
+	}
+
+	/**
+	 * Reverse of toTable().
+	 * @param score
+	 * @param ply Plies from the root
+	 * @return The score relative to the root
+	 */
+	public static int fromTable(int score, int ply){
+		if (score >= SearchEngine.MATE - SearchEngine.MAX_PLY){ return score - ply; }
+		if (score <= -SearchEngine.MATE + SearchEngine.MAX_PLY){ return score + ply; }
+		return score;
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * MaterialEvaluatorTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Position;
+import core.search.MaterialEvaluator;
+
+public class MaterialEvaluatorTest {
+
+	@Test
+	public final void testEvaluate() {
+		MaterialEvaluator evaluator = new MaterialEvaluator();
+		assertEquals(0, evaluator.evaluate(Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")));
+
+		/* Seen from the side to move */
+		assertEquals(900, evaluator.evaluate(Position.fromFen("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")));
+		assertEquals(-900, evaluator.evaluate(Position.fromFen("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1")));
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * MoveOrdererTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Move;
+import core.MoveList;
+import core.Position;
+import core.search.MoveOrderer;
+
+public class MoveOrdererTest {
+	private static final String FEN = "4k3/8/8/1q1n4/2P5/8/8/1R2K3 w - - 0 1";
+
+	@Test
+	public final void testCapturesFirst() {
+		Position position = Position.fromFen(FEN);
+		MoveOrderer orderer = new MoveOrderer();
+		MoveList moves = generate(position);
+		orderer.score(position, moves, Move.NONE, 0);
+
+		/* Most valuable victim first, then least valuable attacker */
+		assertEquals("c4b5", Move.toString(orderer.next(moves, 0, 0)));
+		assertEquals("b1b5", Move.toString(orderer.next(moves, 1, 0)));
+		assertEquals("c4d5", Move.toString(orderer.next(moves, 2, 0)));
+		for (int i = 3; i < moves.size(); i++){
+			assertTrue(MoveOrderer.isQuiet(orderer.next(moves, i, 0)));
+		}
+	}
+
+	@Test
+	public final void testLosingCapturesLast() {
+		/* Qxd6 loses the queen for a pawn */
+		Position position = Position.fromFen("4k3/4p3/3p4/8/8/8/8/3QK3 w - - 0 1");
+		MoveOrderer orderer = new MoveOrderer();
+		MoveList moves = generate(position);
+		orderer.score(position, moves, Move.NONE, 0);
+		for (int i = 0; i < moves.size() - 1; i++){
+			assertTrue(MoveOrderer.isQuiet(orderer.next(moves, i, 0)));
+		}
+		assertEquals("d1d6", Move.toString(orderer.next(moves, moves.size() - 1, 0)));
+		assertTrue(orderer.isLosingCapture(moves.size() - 1, 0));
+		assertFalse(orderer.isLosingCapture(0, 0));
+
+		/* Captures that win or trade are not */
+		position = Position.fromFen(FEN);
+		moves = generate(position);
+		orderer.score(position, moves, Move.NONE, 0);
+		for (int i = 0; i < 3; i++){
+			orderer.next(moves, i, 0);
+			assertFalse(orderer.isLosingCapture(i, 0));
+		}
+	}
+
+	@Test
+	public final void testHashMoveAndKillers() {
+		Position position = Position.fromFen(FEN);
+		MoveOrderer orderer = new MoveOrderer();
+		MoveList moves = generate(position);
+		int hashMove = find(moves, "e1f2");
+		int killer = find(moves, "b1b4");
+		orderer.addCutoff(position, killer, 0, 3);
+
+		/* Captures don't become killers */
+		orderer.addCutoff(position, find(moves, "b1b5"), 0, 3);
+
+		orderer.score(position, moves, hashMove, 0);
+		assertEquals(hashMove, orderer.next(moves, 0, 0));
+		for (int i = 1; i < 4; i++){
+			assertFalse(MoveOrderer.isQuiet(orderer.next(moves, i, 0)));
+		}
+		assertEquals(killer, orderer.next(moves, 4, 0));
+
+		/* Killers are kept per ply */
+		orderer.score(position, moves, Move.NONE, 1);
+		for (int i = 0; i < 3; i++){
+			orderer.next(moves, i, 1);
+		}
+		assertEquals(killer, orderer.next(moves, 3, 1)); //still first of the quiet moves, by its history
+
+		/* A new search forgets the killers, but keeps half the history */
+		orderer.newSearch();
+		orderer.score(position, moves, Move.NONE, 0);
+		for (int i = 0; i < 3; i++){
+			orderer.next(moves, i, 0);
+		}
+		assertEquals(killer, orderer.next(moves, 3, 0));
+	}
+
+	private static MoveList generate(Position position){
+		MoveList moves = new MoveList();
+		position.generateAllMoves(position.getSideToMove(), moves);
+		return moves;
+	}
+
+	private static int find(MoveList moves, String coordinates){
+		for (int i = 0; i < moves.size(); i++){
+			if (Move.toString(moves.get(i)).equals(coordinates)){ return moves.get(i); }
+		}
+		fail(coordinates + " not found");
+		return Move.NONE;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * SearchEngineTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import core.Move;
+import core.MoveList;
+import core.Position;
+import core.search.MaterialEvaluator;
+import core.search.PrincipalVariation;
+import core.search.SearchEngine;
+import core.search.SearchOptions;
+
+public class SearchEngineTest {
+
+	@Test
+	public final void testMateInOne() {
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 3);
+		int move = engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"));
+		assertEquals("a1a8", Move.toString(move));
+		assertEquals(SearchEngine.MATE - 1, engine.getScore());
+		assertTrue(SearchEngine.isMateScore(engine.getScore()));
+	}
+
+	@Test
+	public final void testWinsMaterial() {
+		SearchEngine engine = new SearchEngine();
+		assertEquals("d2d5", Move.toString(engine.findBestMove(Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"))));
+		assertTrue(engine.getNodes() > 0);
+
+		/* The queen is defended, so taking it would lose the rook for nothing: the score is about even */
+		engine.findBestMove(Position.fromFen("4k3/4p3/3q4/8/8/8/3R4/4K3 w - - 0 1"));
+		assertTrue(engine.getScore() < 500);
+	}
+
+	@Test
+	public final void testQuiescence() {
+		/* Qxe5 wins a pawn at depth 1, until the recapture is searched */
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 1);
+		int move = engine.findBestMove(Position.fromFen("4k3/8/3p4/4p3/8/8/8/4QK2 w - - 0 1"));
+		assertFalse("e1e5".equals(Move.toString(move)));
+		assertEquals(700, engine.getScore());
+	}
+
+	@Test
+	public final void testPrincipalVariation() {
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 6);
+		Position position = Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+		int move = engine.findBestMove(position);
+		PrincipalVariation[] lines = engine.getLines();
+		assertEquals(1, lines.length);
+		assertEquals(move, lines[0].getMove());
+		assertEquals(engine.getScore(), lines[0].getScore());
+		assertEquals(6, lines[0].getDepth());
+		assertTrue(lines[0].toString().startsWith("d2d5 e8"));
+
+		/* The line can be played out */
+		for (int m : lines[0].getMoves()){
+			MoveList legal = new MoveList();
+			position.generateAllMoves(position.getSideToMove(), legal);
+			boolean found = false;
+			for (int i = 0; i < legal.size(); i++){
+				found |= legal.get(i) == m;
+			}
+			assertTrue(Move.toString(m), found);
+			position.makeMove(m);
+		}
+	}
+
+	@Test
+	public final void testMultiPv() {
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 4);
+		engine.setMultiPv(3);
+		assertEquals(3, engine.getMultiPv());
+		int move = engine.findBestMove(Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"));
+		PrincipalVariation[] lines = engine.getLines();
+		assertEquals(3, lines.length);
+		assertEquals(move, lines[0].getMove());
+		assertEquals("d2d5", Move.toString(move));
+		for (int i = 1; i < lines.length; i++){
+			assertTrue(lines[i].getScore() <= lines[i - 1].getScore());
+			assertFalse(lines[i].getMove() == lines[i - 1].getMove());
+		}
+
+		/* Fewer legal moves than lines */
+		engine.findBestMove(Position.fromFen("k7/8/2Q5/8/8/8/8/7K b - - 0 1"));
+		assertEquals(2, engine.getLines().length);
+	}
+
+	@Test
+	public final void testSearchOptions() {
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		SearchEngine full = new SearchEngine(new MaterialEvaluator(), 5);
+		full.setOptions(SearchOptions.NONE);
+		int move = full.findBestMove(Position.fromFen(fen));
+
+		/* The pruned search plays the same move, looking at fewer positions */
+		SearchEngine pruned = new SearchEngine(new MaterialEvaluator(), 5);
+		assertSame(SearchOptions.ALL, pruned.getOptions());
+		assertEquals(move, pruned.findBestMove(Position.fromFen(fen)));
+		assertTrue(pruned.getNodes() < full.getNodes());
+
+		/* Each technique can be used alone, and changes the search on its own */
+		for (int i = 0; i < 5; i++){
+			SearchOptions options = new SearchOptions(i == 0, i == 1, i == 2, i == 3, i == 4);
+			SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 3);
+			engine.setOptions(options);
+			assertEquals("a1a8", Move.toString(engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"))));
+
+			engine = new SearchEngine(new MaterialEvaluator(), 5);
+			engine.setOptions(options);
+			engine.findBestMove(Position.fromFen(fen));
+			assertTrue("option " + i, engine.getNodes() != full.getNodes());
+		}
+	}
+
+	@Test
+	public final void testParallelSearch() {
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 5);
+		engine.setThreads(4);
+		assertEquals(4, engine.getThreads());
+		assertEquals("d2d5", Move.toString(engine.findBestMove(Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"))));
+		assertEquals(5, engine.getCompletedDepth());
+		int move = engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"));
+		assertEquals("a1a8", Move.toString(move));
+		assertEquals(SearchEngine.MATE - 1, engine.getScore());
+
+		engine.setThreads(1);
+		assertEquals(1, engine.getThreads());
+	}
+
+	/**
+	 * @return The search helper threads that are alive.
+	 */
+	private static Set<Thread> helperThreads(){
+		Set<Thread> ret = new HashSet<Thread>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()){
+			if (thread.getName().startsWith("Search helper")){ ret.add(thread); }
+		}
+		return ret;
+	}
+
+	@Test
+	public final void testHelperThreadsKept() {
+		/* The helper threads are started once, and search again on the next move */
+		Set<Thread> before = helperThreads();
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 4);
+		engine.setThreads(3);
+		engine.findBestMove(Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"));
+		Set<Thread> started = helperThreads();
+		started.removeAll(before);
+		assertEquals(2, started.size());
+		engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"));
+		Set<Thread> after = helperThreads();
+		after.removeAll(before);
+		assertEquals(started, after);
+
+		/* Fewer threads end the others */
+		engine.setThreads(2);
+		assertEquals(2, engine.getThreads());
+		assertEquals("a1a8", Move.toString(engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"))));
+		engine.setThreads(1);
+	}
+
+	@Test
+	public final void testAnalysis() {
+		/* Engines use one thread unless they are made for analysis */
+		assertEquals(1, new SearchEngine().getThreads());
+		SearchEngine engine = SearchEngine.forAnalysis(new MaterialEvaluator(), 4);
+		assertEquals(Runtime.getRuntime().availableProcessors(), engine.getThreads());
+		assertEquals("a1a8", Move.toString(engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"))));
+		engine.setThreads(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testNoThreads() {
+		new SearchEngine().setThreads(0);
+	}
+
+	@Test
+	public final void testNoLegalMoves() {
+		SearchEngine engine = new SearchEngine();
+		Position stalemate = Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertEquals(Move.NONE, engine.findBestMove(stalemate));
+		assertEquals(0, engine.getScore());
+		assertEquals("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", stalemate.toFen());
+	}
+
+	@Test
+	public final void testAvoidsStalemate() {
+		/* Qf7 would stalemate. Anything else keeps the win */
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 2);
+		int move = engine.findBestMove(Position.fromFen("7k/8/5QK1/8/8/8/8/8 w - - 0 1"));
+		assertFalse("f6f7".equals(Move.toString(move)));
+		assertTrue(engine.getScore() > 0);
+	}
+
+	@Test
+	public final void testRepetitionIsDraw() {
+		/* Black is a queen down, but can go back to a position that has been seen before */
+		Position pos = Position.fromFen("4k1n1/8/8/8/8/8/8/3QK1N1 w - - 0 1");
+		long[] history = new long[3];
+		int[][] shuffle = {{62, 45}, {6, 21}, {45, 62}};
+		for (int i = 0; i < shuffle.length; i++){
+			history[i] = pos.getKey();
+			pos.makeMove(Move.create(shuffle[i][0], shuffle[i][1]));
+		}
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 1);
+		engine.setGameHistory(history, history.length);
+		assertEquals("f6g8", Move.toString(engine.findBestMove(pos)));
+		assertEquals(0, engine.getScore());
+
+		/* Without the history it is just a queen down */
+		engine.setGameHistory(history, 0);
+		engine.findBestMove(pos);
+		assertEquals(-900, engine.getScore());
+	}
+}
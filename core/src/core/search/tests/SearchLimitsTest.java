@@ -0,0 +1,66 @@
+/*
+ * SearchLimitsTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Move;
+import core.Position;
+import core.search.MaterialEvaluator;
+import core.search.SearchEngine;
+import core.search.SearchLimits;
+
+public class SearchLimitsTest {
+	private static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	@Test
+	public final void testNodeLimit() {
+		SearchEngine engine = new SearchEngine();
+		int move = engine.findBestMove(Position.fromFen(MIDDLEGAME), new SearchLimits(SearchEngine.MAX_PLY - 1,
+				SearchLimits.NO_LIMIT, SearchLimits.NO_LIMIT, 5000));
+		assertTrue(move != Move.NONE);
+		assertTrue(engine.getNodes() <= 5000);
+		assertTrue(engine.getCompletedDepth() < SearchEngine.MAX_PLY - 1);
+	}
+
+	@Test
+	public final void testHardDeadline() {
+		SearchEngine engine = new SearchEngine();
+		long start = System.currentTimeMillis();
+		int move = engine.findBestMove(Position.fromFen(MIDDLEGAME), SearchLimits.timed(50, 100));
+		assertTrue(move != Move.NONE);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertTrue(engine.getCompletedDepth() >= 1);
+	}
+
+	@Test
+	public final void testMateStopsDeepening() {
+		SearchEngine engine = new SearchEngine();
+		int move = engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.timed(10000, 20000));
+		assertEquals("a1a8", Move.toString(move));
+
+		/* The quiescence search looks at all replies to a check, so the mate is already seen at depth 1 */
+		assertEquals(1, engine.getCompletedDepth());
+	}
+
+	@Test
+	public final void testFixedDepth() {
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 3);
+		engine.findBestMove(Position.fromFen(MIDDLEGAME));
+		assertEquals(3, engine.getCompletedDepth());
+	}
+
+	@Test
+	public final void testIllegalLimits() {
+		try {
+			new SearchLimits(0, 10, 20, SearchLimits.NO_LIMIT);
+			fail("Depth 0 accepted");
+		} catch (IllegalArgumentException e) {}
+		try {
+			SearchLimits.timed(20, 10);
+			fail("Soft limit larger than hard limit accepted");
+		} catch (IllegalArgumentException e) {}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * SharedTranspositionTableTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import core.Move;
+import core.Position;
+import core.search.MaterialEvaluator;
+import core.search.SearchEngine;
+import core.search.SharedTranspositionTable;
+import core.search.TranspositionTable;
+
+public class SharedTranspositionTableTest {
+	private static final long KEY = 0x0FEDCBA987654321L;
+
+	@Test
+	public final void testGamesShareEntries() {
+		SharedTranspositionTable shared = SharedTranspositionTable.getInstance();
+		assertSame(shared, SharedTranspositionTable.getInstance());
+		TranspositionTable first = shared.newGame();
+		TranspositionTable second = shared.newGame();
+
+		first.store(KEY, Move.create(1, 2), 42, 3, TranspositionTable.EXACT);
+		assertEquals(42, TranspositionTable.score(second.probe(KEY)));
+		assertEquals(Move.create(1, 2), TranspositionTable.move(second.probe(KEY)));
+
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 3, second);
+		assertEquals("a1a8", Move.toString(engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"))));
+		assertTrue(second.getHits() > 0);
+	}
+
+	@Test
+	public final void testGamesAgeTheirOwnEntries() {
+		SharedTranspositionTable shared = SharedTranspositionTable.getInstance();
+		TranspositionTable busy = shared.newGame();
+		TranspositionTable quiet = shared.newGame();
+		long key = KEY ^ 0x5500000000000000L;
+
+		/* A bucket with two deep entries of the busy game and two shallow ones of the quiet game */
+		busy.store(key, Move.NONE, 0, 9, TranspositionTable.EXACT);
+		busy.store(key ^ (1L << 56), Move.NONE, 0, 9, TranspositionTable.EXACT);
+		quiet.store(key ^ (2L << 56), Move.NONE, 0, 3, TranspositionTable.EXACT);
+		quiet.store(key ^ (3L << 56), Move.NONE, 0, 3, TranspositionTable.EXACT);
+
+		/* The busy game's searches make only its own entries old */
+		busy.newSearch();
+		busy.newSearch();
+		busy.newSearch();
+		busy.store(key ^ (4L << 56), Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertTrue(quiet.probe(key ^ (2L << 56)) != 0);
+		assertTrue(quiet.probe(key ^ (3L << 56)) != 0);
+		assertTrue(busy.probe(key ^ (4L << 56)) != 0);
+	}
+
+	@Test
+	public final void testClosedGamesAreOldest() {
+		SharedTranspositionTable shared = SharedTranspositionTable.getInstance();
+		TranspositionTable finished = shared.newGame();
+		long key = KEY ^ 0x3300000000000000L;
+		for (long i = 0; i < 4; i++){
+			finished.store(key ^ (i << 56), Move.NONE, 0, 9, TranspositionTable.EXACT);
+		}
+		finished.close();
+
+		/* A shallow entry of a live game replaces a deep one of the game that is over */
+		TranspositionTable live = shared.newGame();
+		live.store(key ^ (4L << 56), Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertTrue(live.probe(key ^ (4L << 56)) != 0);
+		int left = 0;
+		for (long i = 0; i < 4; i++){
+			if (live.probe(key ^ (i << 56)) != 0){ left++; }
+		}
+		assertEquals(3, left);
+		live.close();
+	}
+
+	@Test
+	public final void testGamesThatAreNotClosed() {
+		/* More games than tags: the game that searched the longest time ago gives its tag to a new game */
+		SharedTranspositionTable shared = SharedTranspositionTable.getInstance();
+		List<TranspositionTable> games = new ArrayList<TranspositionTable>();
+		TranspositionTable first = shared.newGame();
+		games.add(first);
+		first.newSearch();
+		long key = KEY ^ 0x7700000000000000L;
+		first.store(key, Move.NONE, 0, 9, TranspositionTable.EXACT);
+		first.store(key ^ (1L << 56), Move.NONE, 0, 9, TranspositionTable.EXACT);
+		try {
+			for (int i = 0; i < 300; i++){
+				TranspositionTable game = shared.newGame();
+				game.newSearch();
+				games.add(game);
+			}
+
+			/* The deep entries of the first game count as old ones of the game that got its tag, and are replaced
+			 * before the shallow entries of a game that is searching */
+			TranspositionTable last = games.get(games.size() - 1);
+			last.store(key ^ (2L << 56), Move.NONE, 0, 3, TranspositionTable.EXACT);
+			last.store(key ^ (3L << 56), Move.NONE, 0, 3, TranspositionTable.EXACT);
+			last.store(key ^ (4L << 56), Move.NONE, 0, 1, TranspositionTable.EXACT);
+			for (long i = 2; i <= 4; i++){
+				assertTrue(last.probe(key ^ (i << 56)) != 0);
+			}
+			assertTrue(last.probe(key) == 0 || last.probe(key ^ (1L << 56)) == 0);
+
+			/* The first game takes a tag again when it searches, and keeps working */
+			first.newSearch();
+			first.store(KEY ^ 0x7800000000000000L, Move.create(3, 4), 7, 5, TranspositionTable.EXACT);
+			assertEquals(7, TranspositionTable.score(first.probe(KEY ^ 0x7800000000000000L)));
+			SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 3, first);
+			assertEquals("a1a8", Move.toString(engine.findBestMove(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"))));
+		} finally {
+			for (TranspositionTable game : games){
+				game.close();
+			}
+		}
+	}
+
+	@Test
+	public final void testInitializeOnlyOnce() {
+		SharedTranspositionTable.getInstance();
+		try {
+			SharedTranspositionTable.initialize(128);
+			fail("The table was created twice");
+		} catch (IllegalStateException e) {}
+		assertTrue(SharedTranspositionTable.getInstance().getSize() >= 1024 * 1024);
+	}
+}
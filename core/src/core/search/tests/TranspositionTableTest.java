@@ -0,0 +1,100 @@
+/*
+ * TranspositionTableTest.java
+ */
+package core.search.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Move;
+import core.Position;
+import core.search.MaterialEvaluator;
+import core.search.SearchEngine;
+import core.search.TranspositionTable;
+
+public class TranspositionTableTest {
+	private static final long KEY = 0x123456789ABCDEF0L;
+
+	@Test
+	public final void testStoreAndProbe() {
+		TranspositionTable table = new TranspositionTable(1);
+		assertEquals(0, table.probe(KEY));
+		int move = Move.create(12, 28, 0, Move.DOUBLE_PUSH);
+		table.store(KEY, move, -1234, 7, TranspositionTable.LOWER);
+
+		long data = table.probe(KEY);
+		assertEquals(move, TranspositionTable.move(data));
+		assertEquals(-1234, TranspositionTable.score(data));
+		assertEquals(7, TranspositionTable.depth(data));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+		assertEquals(0.5, table.getHitRate(), 0.001);
+
+		/* A result without a move keeps the stored move */
+		table.store(KEY, Move.NONE, 50, 8, TranspositionTable.UPPER);
+		assertEquals(move, TranspositionTable.move(table.probe(KEY)));
+		assertEquals(50, TranspositionTable.score(table.probe(KEY)));
+
+		/* Another key in the same bucket is not mistaken for it */
+		assertEquals(0, table.probe(KEY ^ (1L << 60)));
+	}
+
+	@Test
+	public final void testReplacement() {
+		TranspositionTable table = new TranspositionTable(1);
+
+		/* Five positions in the same bucket of four: the one searched least deep is replaced */
+		for (int i = 0; i < 5; i++){
+			table.store(KEY ^ ((long) i << 56), Move.NONE, i, 10 - i, TranspositionTable.EXACT);
+		}
+		assertTrue(table.probe(KEY ^ (4L << 56)) != 0);
+		assertEquals(0, table.probe(KEY ^ (3L << 56)));
+		assertTrue(table.probe(KEY) != 0);
+
+		/* Entries from older searches go first, even if they are deeper */
+		table.newSearch();
+		table.newSearch();
+		table.newSearch();
+		table.store(KEY ^ (5L << 56), Move.NONE, 0, 1, TranspositionTable.EXACT);
+		table.store(KEY ^ (6L << 56), Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertTrue(table.probe(KEY ^ (5L << 56)) != 0);
+		assertTrue(table.probe(KEY ^ (6L << 56)) != 0);
+		assertEquals(0, table.probe(KEY ^ (2L << 56)));
+	}
+
+	@Test
+	public final void testMateScores() {
+		/* Mate in 3 plies from a position 5 plies from the root is mate in 8 from the root */
+		int stored = TranspositionTable.toTable(SearchEngine.MATE - 8, 5);
+		assertEquals(SearchEngine.MATE - 3, stored);
+		assertEquals(SearchEngine.MATE - 10, TranspositionTable.fromTable(stored, 7));
+		assertEquals(-SearchEngine.MATE + 3, TranspositionTable.toTable(-SearchEngine.MATE + 8, 5));
+		assertEquals(250, TranspositionTable.toTable(250, 5));
+	}
+
+	@Test
+	public final void testOccupancyAndClear() {
+		TranspositionTable table = new TranspositionTable(1);
+		assertEquals(0, table.getOccupancy(), 0);
+		for (long key = 0; key < table.getCapacity(); key++){
+			table.store(key * 0x9E3779B97F4A7C15L, Move.NONE, 0, 1, TranspositionTable.EXACT);
+		}
+		assertTrue(table.getOccupancy() > 0.5);
+		table.clear();
+		assertEquals(0, table.getOccupancy(), 0);
+		assertEquals(0, table.getProbes());
+	}
+
+	@Test
+	public final void testSearchUsesTable() {
+		TranspositionTable table = new TranspositionTable(1);
+		SearchEngine engine = new SearchEngine(new MaterialEvaluator(), 4, table);
+		Position pos = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		int first = engine.findBestMove(pos);
+		long nodes = engine.getNodes();
+		assertTrue(table.getHits() > 0);
+
+		/* The second time, the results of the first search are found */
+		assertEquals(first, engine.findBestMove(pos));
+		assertTrue(engine.getNodes() < nodes);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * BitboardsTest.java
+ */
+package core.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Bitboards;
+
+public class BitboardsTest {
+
+	private static long squares(int[][] coordinates){
+		long ret = 0;
+		for (int[] c : coordinates){
+			ret |= Bitboards.bit(Bitboards.square(c[0], c[1]));
+		}
+		return ret;
+	}
+
+	@Test
+	public final void testRookAttacks() {
+		/* Empty board: the whole row and column */
+		assertEquals(14, Long.bitCount(Bitboards.rookAttacks(Bitboards.square(3, 4), 0)));
+
+		/* The first piece in each direction is included, nothing behind it */
+		long occupied = squares(new int[][] {{3, 2}, {3, 1}, {5, 4}, {0, 4}});
+		long expected = squares(new int[][] {{3, 3}, {3, 2}, {3, 5}, {3, 6}, {3, 7}, {4, 4}, {5, 4}, {2, 4}, {1, 4}, {0, 4}});
+		assertEquals(expected, Bitboards.rookAttacks(Bitboards.square(3, 4), occupied));
+	}
+
+	@Test
+	public final void testBishopAttacks() {
+		assertEquals(7, Long.bitCount(Bitboards.bishopAttacks(Bitboards.square(0, 0), 0)));
+
+		long occupied = squares(new int[][] {{4, 4}, {1, 1}});
+		long expected = squares(new int[][] {{3, 3}, {4, 4}, {1, 1}, {3, 1}, {4, 0}, {1, 3}, {0, 4}});
+		assertEquals(expected, Bitboards.bishopAttacks(Bitboards.square(2, 2), occupied));
+	}
+
+	@Test
+	public final void testLeaperAttacks() {
+		assertEquals(squares(new int[][] {{1, 2}, {2, 1}}), Bitboards.knightAttacks(Bitboards.square(0, 0)));
+		assertEquals(8, Long.bitCount(Bitboards.kingAttacks(Bitboards.square(4, 4))));
+		assertEquals(squares(new int[][] {{0, 5}, {2, 5}}), Bitboards.pawnAttacks(0, Bitboards.square(1, 4)));
+		assertEquals(squares(new int[][] {{0, 3}, {2, 3}}), Bitboards.pawnAttacks(1, Bitboards.square(1, 4)));
+	}
+
+	@Test
+	public final void testPawnPushes() {
+		assertEquals(squares(new int[][] {{2, 2}}), Bitboards.pawnPushes(0, Bitboards.square(2, 1)));
+		assertEquals(squares(new int[][] {{2, 3}}), Bitboards.pawnDoublePushes(0, Bitboards.square(2, 1)));
+		assertEquals(squares(new int[][] {{2, 5}}), Bitboards.pawnPushes(1, Bitboards.square(2, 6)));
+		assertEquals(squares(new int[][] {{2, 4}}), Bitboards.pawnDoublePushes(1, Bitboards.square(2, 6)));
+		assertEquals(0, Bitboards.pawnDoublePushes(1, Bitboards.square(2, 5)));
+		assertEquals(0, Bitboards.pawnPushes(1, Bitboards.square(2, 0)));
+	}
+
+	@Test
+	public final void testBetweenAndLine() {
+		assertEquals(squares(new int[][] {{1, 1}, {2, 2}}), Bitboards.between(Bitboards.square(0, 0), Bitboards.square(3, 3)));
+		assertEquals(0, Bitboards.between(Bitboards.square(0, 0), Bitboards.square(1, 2)));
+		assertEquals(8, Long.bitCount(Bitboards.line(Bitboards.square(0, 3), Bitboards.square(5, 3))));
+	}
+}
@@ -24,4 +24,79 @@ public class ChessBoardTest {
 		assertNotNull(test.getPiece(3, 2));
 	}
 
+	@Test
+	public final void testListMoves() {
+		assertEquals(2, test.listMoves(test.getPiece(1, 7)).length);
+		assertNull(test.listMoves(test.getPiece(0, 7)));
+		assertEquals(2, test.listMoves(test.getPiece(4, 6)).length);
+	}
+
+	@Test
+	public final void testLockedInPawns() {
+		/* Both kings start in check from the pawns in front of them */
+		ChessBoard lockedIn = new ChessBoard(1);
+		assertTrue(lockedIn.movePiece(lockedIn.getPiece(4, 7), 3, 6));
+		assertTrue(lockedIn.movePiece(lockedIn.getPiece(4, 0), 3, 1));
+
+		/* The pawns are next to the other side's officers: they can only capture, and have no double step */
+		assertArrayEquals(new int[][] {{1, 0}}, lockedIn.listMoves(lockedIn.getPiece(0, 1)));
+		assertArrayEquals(new int[][] {{1, 0}, {3, 0}}, lockedIn.listMoves(lockedIn.getPiece(2, 1)));
+		assertArrayEquals(new int[][] {{6, 7}}, lockedIn.listMoves(lockedIn.getPiece(5, 6)));
+	}
+
+	@Test
+	public final void testFindPiece() {
+		assertEquals(new King(27, 4, 7, ChessColor.WHITE), test.findPiece(ChessColor.WHITE, "king"));
+		assertEquals(new Rook(7, 0, 0, ChessColor.BLACK), test.findPiece(ChessColor.BLACK, "Rook"));
+	}
+
+	@Test
+	public final void testFoolsMate() {
+		assertTrue(test.movePiece(test.getPiece(5, 6), 5, 5));
+		assertTrue(test.movePiece(test.getPiece(4, 1), 4, 3));
+		assertTrue(test.movePiece(test.getPiece(6, 6), 6, 4));
+		assertFalse(test.isStaleMate(ChessColor.WHITE));
+		assertTrue(test.movePiece(test.getPiece(3, 0), 7, 4));
+		assertTrue(test.isCheck(test.findPiece(ChessColor.WHITE, "king")));
+		assertTrue(test.isStaleMate(ChessColor.WHITE));
+		assertNull(test.listAllMoves(ChessColor.WHITE));
+	}
+
+	@Test
+	public final void testListAllMoves() {
+		int[][] moves = test.listAllMoves(ChessColor.WHITE);
+		assertEquals(20, moves.length);
+		for (int[] move : moves){
+			assertTrue(test.getPiece(move[0], move[1]).getColor() == ChessColor.WHITE);
+		}
+	}
+
+	@Test
+	public final void testHash() {
+		long start = test.getHash();
+		assertTrue(test.movePiece(test.getPiece(6, 7), 5, 5));
+		assertTrue(test.movePiece(test.getPiece(6, 0), 5, 2));
+		assertTrue(test.movePiece(test.getPiece(5, 5), 6, 7));
+		assertFalse(start == test.getHash());
+		assertTrue(test.movePiece(test.getPiece(5, 2), 6, 0));
+		assertEquals(start, test.getHash());
+	}
+
+	@Test
+	public final void testGameHistory() {
+		long start = test.getHash();
+		assertEquals(0, test.getGameHistory().length);
+		assertTrue(test.movePiece(test.getPiece(6, 7), 5, 5));
+		ChessBoard.Memento memento = test.saveToMemento();
+		long second = test.getHash();
+		assertTrue(test.movePiece(test.getPiece(6, 0), 5, 2));
+		assertArrayEquals(new long[] {start, second}, test.getGameHistory());
+
+		/* Illegal moves are not kept, and undoing a move takes it out again */
+		assertFalse(test.movePiece(test.getPiece(0, 0), 0, 5));
+		assertEquals(2, test.getGameHistory().length);
+		test.restoreFromMemento(memento);
+		assertArrayEquals(new long[] {start}, test.getGameHistory());
+	}
+
 }
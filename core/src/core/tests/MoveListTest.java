@@ -0,0 +1,46 @@
+/*
+ * MoveListTest.java
+ */
+package core.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Bitboards;
+import core.Move;
+import core.MoveList;
+import core.Position;
+
+public class MoveListTest {
+
+	@Test
+	public final void testAddAndClear() {
+		MoveList list = new MoveList();
+		assertTrue(list.isEmpty());
+		list.add(Move.create(1, 2));
+		list.add(Move.create(3, 4));
+		assertEquals(2, list.size());
+		assertEquals(Move.create(3, 4), list.get(1));
+		list.set(0, Move.create(5, 6));
+		assertEquals(Move.create(5, 6), list.get(0));
+		list.clear();
+		assertTrue(list.isEmpty());
+		assertNull(list.toCoordinates());
+	}
+
+	@Test
+	public final void testToCoordinates() {
+		MoveList list = new MoveList();
+		int from = Bitboards.square(1, 1);
+		int to = Bitboards.square(1, 0);
+		for (int promotion = Position.QUEEN; promotion >= Position.KNIGHT; promotion--){
+			list.add(Move.create(from, to, promotion));
+		}
+		list.add(Move.create(from, Bitboards.square(2, 0), Position.QUEEN, Move.CAPTURE));
+
+		int[][] coordinates = list.toCoordinates();
+		assertEquals(2, coordinates.length);
+		assertArrayEquals(new int[] {1, 0}, coordinates[0]);
+		assertArrayEquals(new int[] {2, 0}, coordinates[1]);
+	}
+}
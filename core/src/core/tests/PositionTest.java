@@ -0,0 +1,331 @@
+/*
+ * PositionTest.java
+ */
+package core.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.Bitboards;
+import core.Move;
+import core.MoveList;
+import core.MoveSink;
+import core.Position;
+
+public class PositionTest {
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	Position start = Position.fromFen(START);
+
+	/**
+	 * Counts the legal moves for the side to move.
+	 */
+	private int countMoves(Position pos){
+		int count = 0;
+		for (long b = pos.getOccupancy(pos.getSideToMove()); b != 0; b &= b - 1){
+			count += Long.bitCount(pos.legalTargets(Bitboards.firstSquare(b)));
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the move paths of the given length, making and taking back every move.
+	 */
+	private long perft(Position pos, int depth){
+		MoveList moves = new MoveList();
+		pos.generateAllMoves(pos.getSideToMove(), moves);
+		if (depth == 1){ return moves.size(); }
+		long count = 0;
+		for (int i = 0; i < moves.size(); i++){
+			long undo = pos.makeMove(moves.get(i));
+			count += perft(pos, depth - 1);
+			pos.unmakeMove(undo);
+		}
+		return count;
+	}
+
+	@Test
+	public final void testPerft() {
+		/* Reference counts for the start position, "kiwipete" (castling, promotions, pins) and a position where
+		 * capturing en passant would leave the king in check along the row */
+		assertEquals(8902, perft(start, 3));
+		Position kiwipete = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		assertEquals(2039, perft(kiwipete, 2));
+		assertEquals(97862, perft(kiwipete, 3));
+		Position pinned = Position.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+		assertEquals(2812, perft(pinned, 3));
+		assertEquals(43238, perft(pinned, 4));
+		assertEquals(START, start.toFen());
+	}
+
+	@Test
+	public final void testFen() {
+		assertEquals(START, start.toFen());
+		assertEquals(Position.piece(Position.BLACK, Position.ROOK), start.getPiece(Bitboards.square(0, 0)));
+		assertEquals(Position.piece(Position.WHITE, Position.KING), start.getPiece(Bitboards.square(4, 7)));
+	}
+
+	@Test
+	public final void testStartingMoves() {
+		assertEquals(20, countMoves(start));
+		start.setSideToMove(Position.BLACK);
+		assertEquals(20, countMoves(start));
+	}
+
+	@Test
+	public final void testGenerateAllMoves() {
+		MoveList list = new MoveList();
+		assertTrue(start.generateAllMoves(Position.WHITE, list));
+		assertEquals(20, list.size());
+
+		/* The sink can stop the generation */
+		final int[] count = new int[1];
+		assertFalse(start.generateAllMoves(Position.WHITE, new MoveSink(){
+			public boolean accept(int move){
+				return ++count[0] < 3;
+			}
+		}));
+		assertEquals(3, count[0]);
+
+		/* In double check only the king moves */
+		Position pos = Position.fromFen("4r1k1/8/8/8/8/3n4/2B5/4K3 w - - 0 1");
+		list.clear();
+		pos.generateAllMoves(Position.WHITE, list);
+		for (int i = 0; i < list.size(); i++){
+			assertEquals(Bitboards.square(4, 7), Move.from(list.get(i)));
+		}
+		assertTrue(pos.hasLegalMove(Position.WHITE));
+	}
+
+	@Test
+	public final void testGenerateCaptures() {
+		MoveList list = new MoveList();
+		assertTrue(start.generateCaptures(Position.WHITE, list));
+		assertTrue(list.isEmpty());
+
+		/* The four promotions and the en passant strike. The quiet pawn, rook and king moves are left out */
+		Position pos = Position.fromFen("4k3/1P6/8/3pP3/8/8/6P1/R3K3 w Q d6 0 1");
+		pos.generateCaptures(Position.WHITE, list);
+		assertEquals(5, list.size());
+		for (int i = 0; i < list.size(); i++){
+			int move = list.get(i);
+			assertTrue(Move.promotion(move) != 0 || Move.isEnPassant(move));
+		}
+	}
+
+	@Test
+	public final void testIsAttacked() {
+		assertTrue(start.isSquareAttacked(Bitboards.square(4, 5), Position.WHITE));
+		assertFalse(start.isSquareAttacked(Bitboards.square(4, 4), Position.WHITE));
+		assertFalse(start.isInCheck(Position.WHITE));
+
+		/* One attacker of each kind, looked up from the target square */
+		Position pos = Position.fromFen("4k3/8/8/3p4/8/1N6/8/4K2R w - - 0 1");
+		assertTrue(pos.isSquareAttacked(Bitboards.square(2, 4), Position.BLACK));
+		assertTrue(pos.isSquareAttacked(Bitboards.square(2, 3), Position.WHITE));
+		assertTrue(pos.isSquareAttacked(Bitboards.square(7, 0), Position.WHITE));
+		assertTrue(pos.isSquareAttacked(Bitboards.square(3, 6), Position.WHITE));
+		assertFalse(pos.isSquareAttacked(Bitboards.square(3, 4), Position.BLACK));
+
+		/* The king can't step back along the line of a checking rook */
+		pos = Position.fromFen("4k3/8/8/8/8/8/8/r3K3 w - - 0 1");
+		assertTrue((pos.legalTargets(Bitboards.square(4, 7)) & Bitboards.bit(Bitboards.square(5, 7))) == 0);
+		assertTrue((pos.legalTargets(Bitboards.square(4, 7)) & Bitboards.bit(Bitboards.square(4, 6))) != 0);
+	}
+
+	@Test
+	public final void testPinnedPiece() {
+		Position pos = Position.fromFen("4r1k1/8/8/8/8/8/4B3/4K3 w - - 0 1");
+		assertEquals(0, pos.legalTargets(Bitboards.square(4, 6)));
+		assertEquals(Bitboards.bit(Bitboards.square(4, 6)), pos.getPinned(Position.WHITE));
+	}
+
+	@Test
+	public final void testCheckEvasion() {
+		/* Single check: the bishop can take the knight */
+		Position pos = Position.fromFen("6k1/8/8/8/8/3n4/2B5/4K3 w - - 0 1");
+		assertEquals(Bitboards.bit(Bitboards.square(3, 5)), pos.legalTargets(Bitboards.square(2, 6)));
+
+		/* Double check: only the king can move */
+		pos = Position.fromFen("4r1k1/8/8/8/8/3n4/2B5/4K3 w - - 0 1");
+		assertEquals(2, Long.bitCount(pos.getCheckers(Position.WHITE)));
+		assertEquals(0, pos.legalTargets(Bitboards.square(2, 6)));
+		assertTrue(pos.legalTargets(Bitboards.square(4, 7)) != 0);
+	}
+
+	@Test
+	public final void testGenerateMoves() {
+		MoveList list = new MoveList();
+		Position pos = Position.fromFen("4k3/1P6/8/3pP3/8/8/6P1/R3K3 w Q d6 0 1");
+
+		/* Promotions come four at a time, queen first */
+		pos.generateMoves(Bitboards.square(1, 1), list);
+		assertEquals(4, list.size());
+		assertEquals(Position.QUEEN, Move.promotion(list.get(0)));
+		assertEquals(Position.KNIGHT, Move.promotion(list.get(3)));
+
+		list.clear();
+		pos.generateMoves(Bitboards.square(4, 3), list);
+		assertEquals(2, list.size());
+		for (int i = 0; i < list.size(); i++){
+			int move = list.get(i);
+			assertEquals(Move.to(move) == Bitboards.square(3, 2), Move.isEnPassant(move) && Move.isCapture(move));
+		}
+
+		list.clear();
+		pos.generateMoves(Bitboards.square(6, 6), list);
+		assertEquals(2, list.size());
+		assertTrue(Move.isDoublePush(list.get(0)));
+		assertFalse(Move.isDoublePush(list.get(1)));
+
+		list.clear();
+		pos.generateMoves(Bitboards.square(4, 7), list);
+		int castling = 0;
+		for (int i = 0; i < list.size(); i++){
+			if (Move.isCastling(list.get(i))){
+				castling++;
+				assertEquals(Bitboards.square(2, 7), Move.to(list.get(i)));
+			}
+		}
+		assertEquals(1, castling);
+
+		/* Flags don't change how the move is made */
+		long undo = pos.makeMove(list.get(0));
+		pos.unmakeMove(undo);
+		assertEquals("4k3/1P6/8/3pP3/8/8/6P1/R3K3 w Q d6 0 1", pos.toFen());
+	}
+
+	@Test
+	public final void testEnPassantDiscoveredCheck() {
+		/* Striking en passant would take both pawns off the row between the king and the rook */
+		Position pos = Position.fromFen("8/8/8/KPp4r/8/8/8/7k w - c6 0 1");
+		assertEquals(Bitboards.square(2, 2), pos.getEnPassantSquare());
+		assertEquals(Bitboards.bit(Bitboards.square(1, 2)), pos.legalTargets(Bitboards.square(1, 3)));
+	}
+
+	@Test
+	public final void testCastling() {
+		Position pos = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		long king = pos.legalTargets(Bitboards.square(4, 7));
+		assertTrue((king & Bitboards.bit(Bitboards.square(6, 7))) != 0);
+		assertTrue((king & Bitboards.bit(Bitboards.square(2, 7))) != 0);
+
+		/* Not through check */
+		pos = Position.fromFen("r3k2r/8/8/8/8/8/5r2/R3K2R w KQkq - 0 1");
+		king = pos.legalTargets(Bitboards.square(4, 7));
+		assertTrue((king & Bitboards.bit(Bitboards.square(6, 7))) == 0);
+	}
+
+	@Test
+	public final void testEnPassant() {
+		Position pos = Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+		assertEquals(Bitboards.square(3, 2), pos.getEnPassantSquare());
+		assertTrue((pos.legalTargets(Bitboards.square(4, 3)) & Bitboards.bit(Bitboards.square(3, 2))) != 0);
+	}
+
+	@Test
+	public final void testMakeUnmake() {
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		Position pos = Position.fromFen(fen);
+		for (long b = pos.getOccupancy(Position.WHITE); b != 0; b &= b - 1){
+			int from = Bitboards.firstSquare(b);
+			for (long t = pos.legalTargets(from); t != 0; t &= t - 1){
+				long undo = pos.makeMove(Move.create(from, Bitboards.firstSquare(t)));
+				assertEquals(Position.BLACK, pos.getSideToMove());
+				pos.unmakeMove(undo);
+				assertEquals(fen, pos.toFen());
+			}
+		}
+	}
+
+	@Test
+	public final void testCastlingMove() {
+		Position pos = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		long undo = pos.makeMove(Move.create(Bitboards.square(4, 7), Bitboards.square(6, 7)));
+		assertEquals("r3k2r/8/8/8/8/8/8/R4RK1 b kq - 1 1", pos.toFen());
+		pos.unmakeMove(undo);
+		assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", pos.toFen());
+	}
+
+	@Test
+	public final void testPromotionAndEnPassant() {
+		Position pos = Position.fromFen("4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1");
+		long undo = pos.makeMove(Move.create(Bitboards.square(4, 3), Bitboards.square(3, 2)));
+		assertEquals("4k3/1P6/3P4/8/8/8/8/4K3 b - - 0 1", pos.toFen());
+		pos.unmakeMove(undo);
+		undo = pos.makeMove(Move.create(Bitboards.square(1, 1), Bitboards.square(1, 0), Position.QUEEN));
+		assertEquals("1Q2k3/8/8/3pP3/8/8/8/4K3 b - - 0 1", pos.toFen());
+		pos.unmakeMove(undo);
+		assertEquals("4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1", pos.toFen());
+	}
+
+	@Test
+	public final void testNullMove() {
+		Position pos = Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 3 1");
+		long undo = pos.makeNullMove();
+		assertEquals("4k3/8/8/3pP3/8/8/8/4K3 b - - 0 1", pos.toFen());
+		assertEquals(Position.fromFen(pos.toFen()).getKey(), pos.getKey());
+		pos.unmakeNullMove(undo);
+		assertEquals("4k3/8/8/3pP3/8/8/8/4K3 w - d6 3 1", pos.toFen());
+		assertEquals(Position.fromFen(pos.toFen()).getKey(), pos.getKey());
+	}
+
+	@Test
+	public final void testKey() {
+		assertEquals(Position.fromFen(START).getKey(), start.getKey());
+		Position pos = new Position(start);
+		long undo = pos.makeMove(Move.create(Bitboards.square(6, 7), Bitboards.square(5, 5)));
+		long undo2 = pos.makeMove(Move.create(Bitboards.square(6, 0), Bitboards.square(5, 2)));
+		assertEquals(Position.fromFen(pos.toFen()).getKey(), pos.getKey());
+		assertFalse(start.getKey() == pos.getKey());
+		pos.unmakeMove(undo2);
+		pos.unmakeMove(undo);
+		assertEquals(start.getKey(), pos.getKey());
+
+		/* Same position by a different move order */
+		Position a = Position.fromFen("4k3/8/8/8/8/8/8/R3K1N1 w - - 0 1");
+		Position b = new Position(a);
+		a.makeMove(Move.create(Bitboards.square(0, 7), Bitboards.square(0, 5)));
+		a.makeMove(Move.create(Bitboards.square(4, 0), Bitboards.square(3, 0)));
+		a.makeMove(Move.create(Bitboards.square(6, 7), Bitboards.square(5, 5)));
+		b.makeMove(Move.create(Bitboards.square(6, 7), Bitboards.square(5, 5)));
+		b.makeMove(Move.create(Bitboards.square(4, 0), Bitboards.square(3, 0)));
+		b.makeMove(Move.create(Bitboards.square(0, 7), Bitboards.square(0, 5)));
+		assertEquals(a.getKey(), b.getKey());
+
+		/* Castling rights and en passant are part of the key */
+		assertFalse(Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1").getKey()
+				== Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w Kkq - 0 1").getKey());
+		assertFalse(Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getKey()
+				== Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - - 0 1").getKey());
+	}
+
+	@Test
+	public final void testSee() {
+		/* An undefended pawn, and a pawn defended by a pawn taken with a knight */
+		Position pos = Position.fromFen("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1");
+		assertEquals(100, pos.see(Move.create(Bitboards.square(4, 7), Bitboards.square(4, 3), 0, Move.CAPTURE)));
+		pos = Position.fromFen("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1");
+		assertEquals(-200, pos.see(Move.create(Bitboards.square(3, 5), Bitboards.square(4, 3), 0, Move.CAPTURE)));
+
+		/* The rook behind the capturing rook joins in once the square is cleared */
+		int rxd5 = Move.create(Bitboards.square(3, 6), Bitboards.square(3, 3), 0, Move.CAPTURE);
+		assertEquals(100, Position.fromFen("4k3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1").see(rxd5));
+		assertEquals(-400, Position.fromFen("3rk3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1").see(rxd5));
+
+		/* The threshold test agrees with the full evaluation */
+		String[] fens = {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "3rk3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1",
+				"4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1", "8/8/3k4/3p4/8/8/3R4/3RK3 w - - 0 1"};
+		for (String fen : fens){
+			pos = Position.fromFen(fen);
+			MoveList list = new MoveList();
+			pos.generateAllMoves(pos.getSideToMove(), list);
+			for (int i = 0; i < list.size(); i++){
+				int move = list.get(i);
+				int see = pos.see(move);
+				assertTrue(Move.toString(move), pos.seeGreaterOrEqual(move, see));
+				assertFalse(Move.toString(move), pos.seeGreaterOrEqual(move, see + 1));
+			}
+		}
+	}
+}
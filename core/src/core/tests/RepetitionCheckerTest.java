@@ -0,0 +1,68 @@
+/*
+ * RepetitionCheckerTest.java
+ */
+package core.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import core.ChessBoard;
+import core.RepetitionChecker;
+
+public class RepetitionCheckerTest {
+	ChessBoard board = new ChessBoard(0);
+	RepetitionChecker checker = new RepetitionChecker();
+
+	/**
+	 * Moves the knights out and back once.
+	 * @return true if the checker found a repetition at any of the moves.
+	 */
+	private boolean shuffleKnights(){
+		boolean found = false;
+		board.movePiece(board.getPiece(6, 7), 5, 5);
+		found |= checker.checkForRepetition(board);
+		board.movePiece(board.getPiece(6, 0), 5, 2);
+		found |= checker.checkForRepetition(board);
+		board.movePiece(board.getPiece(5, 5), 6, 7);
+		found |= checker.checkForRepetition(board);
+		board.movePiece(board.getPiece(5, 2), 6, 0);
+		found |= checker.checkForRepetition(board);
+		return found;
+	}
+
+	@Test
+	public final void testThreefold() {
+		assertFalse(shuffleKnights());
+		assertFalse(shuffleKnights());
+		board.movePiece(board.getPiece(6, 7), 5, 5);
+		assertTrue(checker.checkForRepetition(board));
+	}
+
+	@Test
+	public final void testIrreversibleMove() {
+		assertFalse(shuffleKnights());
+		board.movePiece(board.getPiece(4, 6), 4, 4); //A pawn move. Earlier positions can not come back.
+		assertFalse(checker.checkForRepetition(board));
+		board.movePiece(board.getPiece(4, 1), 4, 3);
+		assertFalse(checker.checkForRepetition(board));
+		assertFalse(shuffleKnights());
+		board.movePiece(board.getPiece(6, 7), 5, 5);
+		assertFalse(checker.checkForRepetition(board));
+		board.movePiece(board.getPiece(6, 0), 5, 2);
+		assertFalse(checker.checkForRepetition(board));
+		board.movePiece(board.getPiece(5, 5), 6, 7);
+		assertFalse(checker.checkForRepetition(board));
+		board.movePiece(board.getPiece(5, 2), 6, 0);
+		assertTrue(checker.checkForRepetition(board));
+	}
+
+	@Test
+	public final void testRemoveLastEntry() {
+		assertFalse(shuffleKnights());
+		assertFalse(shuffleKnights());
+		checker.removeLastEntry();
+		assertFalse(checker.checkForRepetition(board));
+		board.movePiece(board.getPiece(6, 7), 5, 5);
+		assertTrue(checker.checkForRepetition(board));
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * EvalParameters.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.tuning;
+
+import core.Bitboards;
+import core.Position;
+import core.eval.PawnStructure;
+import core.eval.PieceSquareTables;
+
+/**
+ * The weights of the TaperedEvaluator as one array, for tuning. The evaluation is a sum of weights times how many
+ * white minus black pieces or pawns they apply to, blended by the game phase, so it is linear in the weights. Each
+ * term has a middlegame weight at an even index and the endgame weight right after it: a term is one pair.
+ *
+ * Pairs: the material values of the pieces other than the king, the piece-square tables (indexed by type and square,
+ * as seen by white), the pawn structure terms (see PawnStructure.terms()) and the pawn shield.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class EvalParameters {
+	public static final int MATERIAL = 0;
+	public static final int TABLES = MATERIAL + 5;
+	public static final int PAWNS = TABLES + 6 * 64;
+	public static final int SHIELD = PAWNS + PawnStructure.TERMS; //SHIELD + 0 near row, + 1 far row
+	public static final int PAIRS = SHIELD + 2;
+
+	/* The number of weights */
+	public static final int SIZE = PAIRS * 2;
+
+	/* The most terms a position can have: material, one for each piece, pawn structure and shield */
+	public static final int MAX_TERMS = 5 + 64 + PawnStructure.TERMS + 2;
+
+	private static final String[] NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+
+	private EvalParameters(){}
+
+	/**
+	 * @return The weights the evaluation uses now.
+	 */
+	public static double[] initial(){
+		double[] weights = new double[SIZE];
+		for (int type = 0; type < 5; type++){
+			set(weights, MATERIAL + type, PieceSquareTables.MIDDLEGAME_VALUES[type], PieceSquareTables.ENDGAME_VALUES[type]);
+		}
+		for (int type = 0; type < 6; type++){
+			for (int sq = 0; sq < 64; sq++){
+				set(weights, TABLES + type * 64 + sq, PieceSquareTables.MIDDLEGAME[type][sq], PieceSquareTables.ENDGAME[type][sq]);
+			}
+		}
+		set(weights, PAWNS + PawnStructure.DOUBLED, PawnStructure.DOUBLED_MG, PawnStructure.DOUBLED_EG);
+		set(weights, PAWNS + PawnStructure.ISOLATED, PawnStructure.ISOLATED_MG, PawnStructure.ISOLATED_EG);
+		set(weights, PAWNS + PawnStructure.BACKWARD, PawnStructure.BACKWARD_MG, PawnStructure.BACKWARD_EG);
+		for (int row = 0; row < 8; row++){
+			set(weights, PAWNS + PawnStructure.PASSED + row, PawnStructure.PASSED_MG[row], PawnStructure.PASSED_EG[row]);
+		}
+		set(weights, SHIELD, PawnStructure.SHIELD_NEAR, 0);
+		set(weights, SHIELD + 1, PawnStructure.SHIELD_FAR, 0);
+		return weights;
+	}
+
+	/**
+	 * @param index
+	 * @return False for weights the evaluation doesn't have, and which must stay 0: the endgame pawn shield.
+	 */
+	public static boolean isTuned(int index){
+		return index != 2 * SHIELD + 1 && index != 2 * (SHIELD + 1) + 1;
+	}
+
+	/**
+	 * Finds the terms of a position.
+	 * @param position
+	 * @param pairs Gets the pairs of the terms. Must have room for MAX_TERMS.
+	 * @param counts Gets how many more white than black pieces or pawns each term applies to.
+	 * @return The number of terms.
+	 */
+	public static int terms(Position position, int[] pairs, int[] counts){
+		int n = 0;
+		for (int type = 0; type < 6; type++){
+			long white = position.getPieces(Position.WHITE, type);
+			long black = position.getPieces(Position.BLACK, type);
+			int material = Long.bitCount(white) - Long.bitCount(black);
+			if (type != Position.KING && material != 0){
+				pairs[n] = MATERIAL + type;
+				counts[n++] = material;
+			}
+			for (long b = white; b != 0; b &= b - 1){
+				pairs[n] = TABLES + type * 64 + Bitboards.firstSquare(b);
+				counts[n++] = 1;
+			}
+			for (long b = black; b != 0; b &= b - 1){
+				pairs[n] = TABLES + type * 64 + (Bitboards.firstSquare(b) ^ 56);
+				counts[n++] = -1;
+			}
+		}
+
+		long whitePawns = position.getPieces(Position.WHITE, Position.PAWN);
+		long blackPawns = position.getPieces(Position.BLACK, Position.PAWN);
+		int[] pawns = new int[PawnStructure.TERMS];
+		PawnStructure.terms(whitePawns, blackPawns, pawns);
+		for (int term = 0; term < pawns.length; term++){
+			if (pawns[term] != 0){
+				pairs[n] = PAWNS + term;
+				counts[n++] = pawns[term];
+			}
+		}
+
+		/* The same rule as TaperedEvaluator: only kings on their first two rows are shielded */
+		int[] shield = new int[2];
+		for (int color = 0; color < 2; color++){
+			int king = position.kingSquare(color);
+			if (king == Position.NO_SQUARE || PawnStructure.relativeRow(color, king) > 1){ continue; }
+			int sign = color == Position.WHITE ? 1 : -1;
+			long own = color == Position.WHITE ? whitePawns : blackPawns;
+			for (int row = 1; row <= 2; row++){
+				shield[row - 1] += sign * PawnStructure.shieldPawns(own, color, Bitboards.getX(king), row);
+			}
+		}
+		for (int row = 0; row < 2; row++){
+			if (shield[row] != 0){
+				pairs[n] = SHIELD + row;
+				counts[n++] = shield[row];
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Writes the weights as the Java declarations in PieceSquareTables and PawnStructure, rounded to centipawns.
+	 * @param weights
+	 * @return The declarations
+	 */
+	public static String format(double[] weights){
+		StringBuilder sb = new StringBuilder();
+		sb.append("/* PieceSquareTables */\n");
+		for (int phase = 0; phase < 2; phase++){
+			sb.append(phase == 0 ? "MIDDLEGAME_VALUES = {" : "ENDGAME_VALUES = {");
+			for (int type = 0; type < 5; type++){
+				sb.append(round(weights, MATERIAL + type, phase)).append(", ");
+			}
+			sb.append("0};\n");
+		}
+		for (int phase = 0; phase < 2; phase++){
+			sb.append(phase == 0 ? "MIDDLEGAME = {\n" : "ENDGAME = {\n");
+			for (int type = 0; type < 6; type++){
+				sb.append("\t{ //").append(NAMES[type]).append('\n');
+				for (int y = 0; y < 8; y++){
+					sb.append("\t\t");
+					for (int x = 0; x < 8; x++){
+						sb.append(String.format("%4d", round(weights, TABLES + type * 64 + y * 8 + x, phase)));
+						if (y < 7 || x < 7){ sb.append(','); }
+					}
+					sb.append(y < 7 ? "\n" : type < 5 ? "},\n" : "}\n");
+				}
+			}
+			sb.append("};\n");
+		}
+
+		sb.append("\n/* PawnStructure */\n");
+		String[] names = {"DOUBLED", "ISOLATED", "BACKWARD"};
+		for (int term = 0; term < names.length; term++){
+			sb.append(names[term]).append("_MG = ").append(round(weights, PAWNS + term, 0)).append(";\n");
+			sb.append(names[term]).append("_EG = ").append(round(weights, PAWNS + term, 1)).append(";\n");
+		}
+		for (int phase = 0; phase < 2; phase++){
+			sb.append(phase == 0 ? "PASSED_MG = {" : "PASSED_EG = {");
+			for (int row = 0; row < 8; row++){
+				sb.append(round(weights, PAWNS + PawnStructure.PASSED + row, phase)).append(row < 7 ? ", " : "};\n");
+			}
+		}
+		sb.append("SHIELD_NEAR = ").append(round(weights, SHIELD, 0)).append(";\n");
+		sb.append("SHIELD_FAR = ").append(round(weights, SHIELD + 1, 0)).append(";\n");
+		return sb.toString();
+	}
+
+	private static void set(double[] weights, int pair, int middlegame, int endgame){
+		weights[2 * pair] = middlegame;
+		weights[2 * pair + 1] = endgame;
+	}
+
+	private static long round(double[] weights, int pair, int phase){
+		return Math.round(weights[2 * pair + phase]);
+	}
+}
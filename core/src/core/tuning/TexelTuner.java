@@ -0,0 +1,283 @@
+/*
+ * TexelTuner.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.tuning;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import core.eval.PieceSquareTables;
+
+/**
+ * Tunes the weights of the evaluation to predict the results of games, the way Peter Osterlund tuned Texel: the
+ * score s of a position is turned into an expected result 1 / (1 + 10^(-k * s / 400)), and the weights are chosen
+ * to minimize the mean squared difference between the expected and the real results over a large set of positions.
+ *
+ * The evaluation is linear in the weights (see EvalParameters), so the gradient of the error is found exactly in
+ * one pass over the positions, and the weights are moved along it with the Adam method. The passes are split into
+ * chunks that run on all processors with fork/join.
+ *
+ * Usage: java core.tuning.TexelTuner positions-file [iterations] [threads]. The positions file has one FEN string
+ * and game result per line, see TuningData.read(). The tuned weights are written to standard output, as the
+ * declarations to paste into PieceSquareTables and PawnStructure, and the progress to standard error.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public class TexelTuner {
+	public static final int DEFAULT_ITERATIONS = 1000;
+
+	/* Positions per task when a pass is split up */
+	private static final int CHUNK = 16384;
+
+	/* Adam step size in centipawns, and decay rates */
+	private static final double RATE = 1.0;
+	private static final double BETA1 = 0.9;
+	private static final double BETA2 = 0.999;
+	private static final double EPSILON = 1e-8;
+
+	private final TuningData data;
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param data The positions to tune for
+	 * @param threads The number of threads to use
+	 * @throws IllegalArgumentException if the number of threads is less than 1.
+	 */
+	public TexelTuner(TuningData data, int threads) throws IllegalArgumentException {
+		if (threads < 1){
+			throw new IllegalArgumentException("There must be at least one thread: " + threads);
+		}
+		this.data = data;
+		pool = new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Creates a tuner using all the processors.
+	 * @param data The positions to tune for
+	 */
+	public TexelTuner(TuningData data){
+		this(data, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param weights See EvalParameters
+	 * @param position The index of a position in the data
+	 * @return The score of the position from white's side, as the evaluation with the weights would give it.
+	 */
+	public double evaluate(double[] weights, int position){
+		double mg = 0;
+		double eg = 0;
+		for (int t = data.start(position), end = data.end(position); t < end; t++){
+			int pair = 2 * data.pair(t);
+			mg += weights[pair] * data.count(t);
+			eg += weights[pair + 1] * data.count(t);
+		}
+		int phase = data.phase(position);
+		return (mg * phase + eg * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+	}
+
+	/**
+	 * @param weights See EvalParameters
+	 * @param k The scaling of the scores
+	 * @return The mean squared difference between the expected and the real results.
+	 */
+	public double error(double[] weights, double k){
+		return pool.invoke(new Pass(weights, k, 0, data.size(), false)).error / data.size();
+	}
+
+	/**
+	 * Finds the scaling of the scores that fits the results best with the given weights, to be kept while tuning.
+	 * @param weights See EvalParameters
+	 * @return The scaling k, between 0 and 10.
+	 */
+	public double fitScaling(double[] weights){
+		/* The error has a single minimum, so a golden section search finds it */
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		double low = 0;
+		double high = 10;
+		double a = high - ratio * (high - low);
+		double b = low + ratio * (high - low);
+		double errorA = error(weights, a);
+		double errorB = error(weights, b);
+		while (high - low > 0.001){
+			if (errorA < errorB){
+				high = b;
+				b = a;
+				errorB = errorA;
+				a = high - ratio * (high - low);
+				errorA = error(weights, a);
+			}else {
+				low = a;
+				a = b;
+				errorA = errorB;
+				b = low + ratio * (high - low);
+				errorB = error(weights, b);
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * Tunes the weights.
+	 * @param initial The weights to start from, see EvalParameters. Not changed.
+	 * @param k The scaling of the scores, see fitScaling()
+	 * @param iterations The number of passes over the positions
+	 * @param log Gets the error every 100 iterations, or null
+	 * @return The tuned weights.
+	 */
+	public double[] tune(double[] initial, double k, int iterations, PrintStream log){
+		double[] weights = initial.clone();
+		double[] m = new double[weights.length];
+		double[] v = new double[weights.length];
+		for (int i = 1; i <= iterations; i++){
+			Result pass = pool.invoke(new Pass(weights, k, 0, data.size(), true));
+			double correction1 = 1 - Math.pow(BETA1, i);
+			double correction2 = 1 - Math.pow(BETA2, i);
+			for (int j = 0; j < weights.length; j++){
+				if (!EvalParameters.isTuned(j)){ continue; }
+				double g = pass.gradient[j] / data.size();
+				m[j] = BETA1 * m[j] + (1 - BETA1) * g;
+				v[j] = BETA2 * v[j] + (1 - BETA2) * g * g;
+				weights[j] -= RATE * (m[j] / correction1) / (Math.sqrt(v[j] / correction2) + EPSILON);
+			}
+			if (log != null && (i % 100 == 0 || i == iterations)){
+				log.println("Iteration " + i + ": error " + pass.error / data.size());
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * The error, and its gradient by the weights, summed over some positions.
+	 */
+	private static final class Result {
+		double error;
+		double[] gradient;
+	}
+
+	/**
+	 * A pass over the positions from one index to another, split into halves until they are at most CHUNK long.
+	 */
+	private final class Pass extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] weights;
+		private final double k;
+		private final int from;
+		private final int to;
+		private final boolean withGradient;
+
+		Pass(double[] weights, double k, int from, int to, boolean withGradient){
+			this.weights = weights;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+			this.withGradient = withGradient;
+		}
+
+		@Override
+		protected Result compute(){
+			if (to - from > CHUNK){
+				int middle = (from + to) >>> 1;
+				Pass second = new Pass(weights, k, middle, to, withGradient);
+				second.fork();
+				Result ret = new Pass(weights, k, from, middle, withGradient).compute();
+				Result other = second.join();
+				ret.error += other.error;
+				if (withGradient){
+					for (int j = 0; j < ret.gradient.length; j++){
+						ret.gradient[j] += other.gradient[j];
+					}
+				}
+				return ret;
+			}
+
+			Result ret = new Result();
+			if (withGradient){ ret.gradient = new double[weights.length]; }
+			double scale = k * Math.log(10) / 400;
+			for (int p = from; p < to; p++){
+				double expected = 1 / (1 + Math.exp(-scale * evaluate(weights, p)));
+				double difference = data.result(p) - expected;
+				ret.error += difference * difference;
+				if (!withGradient){ continue; }
+
+				/* d(error)/d(score), spread over the middlegame and endgame weights by the phase */
+				double d = -2 * difference * expected * (1 - expected) * scale;
+				double mg = d * data.phase(p) / PieceSquareTables.MAX_PHASE;
+				double eg = d - mg;
+				for (int t = data.start(p), end = data.end(p); t < end; t++){
+					int pair = 2 * data.pair(t);
+					ret.gradient[pair] += mg * data.count(t);
+					ret.gradient[pair + 1] += eg * data.count(t);
+				}
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Tunes the evaluation for the positions in a file, and writes the weights.
+	 * @param args The positions file, and optionally the number of iterations and of threads
+	 * @throws IOException if the file can not be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1){
+			System.err.println("Usage: java core.tuning.TexelTuner positions-file [iterations] [threads]");
+			return;
+		}
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.currentTimeMillis();
+		TuningData data = new TuningData();
+		Reader reader = new FileReader(args[0]);
+		try {
+			data.read(reader);
+		}finally {
+			reader.close();
+		}
+		System.err.println("Read " + data.size() + " positions in " + (System.currentTimeMillis() - start) + " ms");
+
+		TexelTuner tuner = new TexelTuner(data, threads);
+		double[] weights = EvalParameters.initial();
+		double k = tuner.fitScaling(weights);
+		System.err.println("Scaling " + k + ", error " + tuner.error(weights, k));
+		weights = tuner.tune(weights, k, iterations, System.err);
+		System.err.println("Done in " + (System.currentTimeMillis() - start) + " ms");
+		System.out.print(EvalParameters.format(weights));
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * TuningData.java
+ */
+
+/* Copyright information:
+ * 
+ *  Copyright 2010 Failboat Productions. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY FAILBOAT PRODUCTIONS ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FAILBOAT PRODUCTIONS OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of Failboat Productions.
+ */
+
+package core.tuning;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import core.Position;
+import core.eval.PieceSquareTables;
+
+/**
+ * Positions with the results of the games they were played in, for tuning the evaluation. Only the terms of the
+ * evaluation are kept, see EvalParameters.terms(), in arrays of primitives that grow as positions are added. Millions
+ * of positions take a few hundred megabytes.
+ *
+ * The positions should be quiet, without captures waiting to be made, since the tuner compares the static evaluation
+ * with the result.
+ * @author Team Failboat
+ * @version 0.1.0
+ */
+public final class TuningData {
+	private int size;
+	private int[] starts = new int[1025]; //the first term of each position, and the end of the last one
+	private short[] pairs = new short[32768];
+	private byte[] counts = new byte[32768];
+	private byte[] phases = new byte[1024];
+	private byte[] results = new byte[1024]; //0 for a black win, 1 for a draw, 2 for a white win
+
+	private final int[] termPairs = new int[EvalParameters.MAX_TERMS];
+	private final int[] termCounts = new int[EvalParameters.MAX_TERMS];
+
+	/**
+	 * Adds a position.
+	 * @param position
+	 * @param result 1 if white won the game, 0.5 for a draw and 0 if black won
+	 */
+	public void add(Position position, double result){
+		int n = EvalParameters.terms(position, termPairs, termCounts);
+		int start = starts[size];
+		if (size + 1 == phases.length){
+			phases = Arrays.copyOf(phases, phases.length * 2);
+			results = Arrays.copyOf(results, results.length * 2);
+			starts = Arrays.copyOf(starts, phases.length + 1);
+		}
+		if (start + n > pairs.length){
+			pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, start + n));
+			counts = Arrays.copyOf(counts, pairs.length);
+		}
+		for (int i = 0; i < n; i++){
+			pairs[start + i] = (short) termPairs[i];
+			counts[start + i] = (byte) termCounts[i];
+		}
+		phases[size] = (byte) Math.min(position.getPhase(), PieceSquareTables.MAX_PHASE);
+		results[size] = (byte) Math.round(result * 2);
+		starts[++size] = start + n;
+	}
+
+	/**
+	 * Reads positions, one per line: a FEN string followed by the result, as 1-0, 0-1 or 1/2-1/2, or as 1.0, 0.5
+	 * or 0.0. Quotes, brackets and semicolons around the result are skipped, and so are empty lines.
+	 * Only the first four fields of the FEN string are used.
+	 * @param reader
+	 * @return The number of positions read.
+	 * @throws IOException if reading fails, or a line is not a position with a result.
+	 */
+	public int read(Reader reader) throws IOException {
+		BufferedReader in = new BufferedReader(reader);
+		int read = 0;
+		int lineNumber = 0;
+		for (String line = in.readLine(); line != null; line = in.readLine()){
+			lineNumber++;
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length == 1 && fields[0].length() == 0){ continue; }
+			double result = -1;
+			for (int i = 4; i < fields.length && result < 0; i++){
+				result = parseResult(fields[i].replaceAll("[\\[\\]\";]", ""));
+			}
+			if (fields.length < 4 || result < 0){ throw new IOException("Line " + lineNumber + ": no position and result"); }
+			try {
+				add(Position.fromFen(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3] + " 0 1"), result);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+			}
+			read++;
+		}
+		return read;
+	}
+
+	/**
+	 * @param field
+	 * @return The result the field stands for, or -1 if it is not a result.
+	 */
+	private static double parseResult(String field){
+		if (field.equals("1-0") || field.equals("1.0")){ return 1; }
+		if (field.equals("0-1") || field.equals("0.0")){ return 0; }
+		if (field.equals("1/2-1/2") || field.equals("0.5")){ return 0.5; }
+		return -1;
+	}
+
+	/**
+	 * @return The number of positions.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * @param position
+	 * @return The index of the first term of the position.
+	 */
+	int start(int position){
+		return starts[position];
+	}
+
+	/**
+	 * @param position
+	 * @return The index after the last term of the position.
+	 */
+	int end(int position){
+		return starts[position + 1];
+	}
+
+	/**
+	 * @param term
+	 * @return The pair of the term, see EvalParameters.
+	 */
+	int pair(int term){
+		return pairs[term];
+	}
+
+	/**
+	 * @param term
+	 * @return How many more white than black pieces or pawns the term applies to.
+	 */
+	int count(int term){
+		return counts[term];
+	}
+
+	/**
+	 * @param position
+	 * @return The game phase of the position, at most PieceSquareTables.MAX_PHASE.
+	 */
+	int phase(int position){
+		return phases[position];
+	}
+
+	/**
+	 * @param position
+	 * @return The result of the game: 1 if white won, 0.5 for a draw and 0 if black won.
+	 */
+	double result(int position){
+		return results[position] * 0.5;
+	}
+}
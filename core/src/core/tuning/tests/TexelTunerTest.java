@@ -0,0 +1,85 @@
+/*
+ * TexelTunerTest.java
+ */
+package core.tuning.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import core.Position;
+import core.eval.TaperedEvaluator;
+import core.tuning.EvalParameters;
+import core.tuning.TexelTuner;
+import core.tuning.TuningData;
+
+public class TexelTunerTest {
+	private static final String[] FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"rnbq1rk1/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1RK1 w - - 0 1",
+		"4k3/8/3p4/4p3/2P5/8/8/4K3 b - - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"};
+
+	@Test
+	public final void testEvaluate() {
+		/* The tuner scores positions like the evaluation does with the weights it has now */
+		TuningData data = new TuningData();
+		TaperedEvaluator evaluator = new TaperedEvaluator();
+		for (String fen : FENS){
+			data.add(Position.fromFen(fen), 0.5);
+		}
+		TexelTuner tuner = new TexelTuner(data, 2);
+		double[] weights = EvalParameters.initial();
+		for (int i = 0; i < FENS.length; i++){
+			Position pos = Position.fromFen(FENS[i]);
+			int score = evaluator.evaluate(pos) * (pos.getSideToMove() == Position.WHITE ? 1 : -1);
+			assertEquals(score, tuner.evaluate(weights, i), 1);
+		}
+	}
+
+	@Test
+	public final void testRead() throws IOException {
+		TuningData data = new TuningData();
+		String lines = FENS[0] + " [0.5]\n"
+				+ "\n"
+				+ FENS[1] + " c9 \"1-0\";\n"
+				+ "4k3/8/3p4/4p3/2P5/8/8/4K3 b - - 0-1\n";
+		assertEquals(3, data.read(new StringReader(lines)));
+		assertEquals(3, data.size());
+
+		try {
+			data.read(new StringReader(FENS[0] + " 0 1\n"));
+			fail("Read a position without a result");
+		} catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test
+	public final void testTune() {
+		/* Positions where the side with more material won. Tuning lowers the error */
+		TuningData data = new TuningData();
+		for (int i = 0; i < 300; i++){
+			data.add(Position.fromFen("4k3/8/8/8/8/8/8/1N2K3 w - - 0 1"), 1);
+			data.add(Position.fromFen("1n2k3/8/8/8/8/8/8/4K3 w - - 0 1"), 0);
+			data.add(Position.fromFen("4k3/pppp4/8/8/8/8/PPPP4/4K3 w - - 0 1"), 0.5);
+		}
+		TexelTuner tuner = new TexelTuner(data);
+		double[] weights = EvalParameters.initial();
+		double k = tuner.fitScaling(weights);
+		double before = tuner.error(weights, k);
+		double[] tuned = tuner.tune(weights, k, 50, null);
+		assertTrue(tuner.error(tuned, k) < before);
+		assertEquals(EvalParameters.initial()[0], weights[0], 0);
+		assertTrue(EvalParameters.format(tuned).contains("MIDDLEGAME_VALUES = {"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testNoThreads() {
+		new TexelTuner(new TuningData(), 0);
+	}
+}
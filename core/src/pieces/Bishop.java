@@ -41,14 +41,15 @@ package pieces;
  */
 public class Bishop extends Piece {
 	private static final long serialVersionUID = 3955842144112606357L;
+	public static final int VALUE = 3; //also returned by getValue()
 	private static final int[][] directions = {{1,1},{-1,1}};
 	
 	public Bishop(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 3);
+		super(uNr, x, y, color, VALUE);
 	}
 	
 	public Bishop(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 3, false);
+		super(uNr, x, y, color, VALUE, false);
 	}
 
 
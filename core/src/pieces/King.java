@@ -39,14 +39,15 @@ package pieces;
  */
 public class King extends Piece implements Castleable {
 	private static final long serialVersionUID = -5687359656488433061L;
+	public static final int VALUE = 4; //also returned by getValue()
 	private static final int[][] moves = {{0,1},{0,-1},{1,0},{-1,0},{1,1},{1,-1},{-1,1},{-1,-1}};
 	
 	public King(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 4, true);
+		super(uNr, x, y, color, VALUE, true);
 	}
 	
 	public King(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 4, initialPosition);
+		super(uNr, x, y, color, VALUE, initialPosition);
 	}
 
 
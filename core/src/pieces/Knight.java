@@ -41,15 +41,16 @@ package pieces;
 
 public class Knight extends Piece{
 	private static final long serialVersionUID = 1890284070687890473L;
+	public static final int VALUE = 3; //also returned by getValue()
 	private static final int[][] moves = {{-1,2},{1,2},{2,1},{2,-1},
 									{1,-2},{-1,-2},{-2,1},{-2,-1}};
 	
 	public Knight(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 3);
+		super(uNr, x, y, color, VALUE);
 	}
 	
 	public Knight(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 3, false);
+		super(uNr, x, y, color, VALUE, false);
 	}
 
 
@@ -40,15 +40,16 @@ package pieces;
  */
 public class Pawn extends Piece {
 	private static final long serialVersionUID = 6056720416976755691L;
+	public static final int VALUE = 1; //also returned by getValue()
 	private static final int[][] movesWithFirstMove = {{0,2},{0,1},{1,1},{-1,1}};
 	private static final int[][] moves = {{0,1},{1,1},{-1,1}};
 	
 	public Pawn(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 1, true);
+		super(uNr, x, y, color, VALUE, true);
 	}
 	
 	public Pawn(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 1, initialPosition);
+		super(uNr, x, y, color, VALUE, initialPosition);
 	}
 
 
@@ -41,14 +41,15 @@ package pieces;
  */
 public class Queen extends Piece{
 	private static final long serialVersionUID = -553882911760080054L;
+	public static final int VALUE = 9; //also returned by getValue()
 	private static final int[][] directions = {{0,1},{1,0},{1,1},{1,-1}};
 
 	public Queen(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 9);
+		super(uNr, x, y, color, VALUE);
 	}
 	
 	public Queen(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 9, false);
+		super(uNr, x, y, color, VALUE, false);
 	}
 	
 
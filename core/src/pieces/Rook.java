@@ -40,14 +40,15 @@ package pieces;
  */
 public class Rook extends Piece implements Castleable {
 	private static final long serialVersionUID = 2067962405226325569L;
+	public static final int VALUE = 5; //also returned by getValue()
 	private static final int[][] directions = {{0,1},{1,0}};
 	
 	public Rook(int uNr, int x, int y, ChessColor color) throws IllegalArgumentException {
-		super(uNr, x, y, color, 5, true);
+		super(uNr, x, y, color, VALUE, true);
 	}
 
 	public Rook(int uNr, int x, int y, ChessColor color, boolean initialPosition) throws IllegalArgumentException {
-		super(uNr, x, y, color, 5, initialPosition);
+		super(uNr, x, y, color, VALUE, initialPosition);
 	}
 	
 